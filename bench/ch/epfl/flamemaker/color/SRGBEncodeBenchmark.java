@@ -0,0 +1,72 @@
+package ch.epfl.flamemaker.color;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The time taken by {@link Color#sRGBEncode( double, int )} and
+ * {@link Color#sRGBEncodeExact( double, int )} to encode the components of an image.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+public class SRGBEncodeBenchmark
+{
+
+	private static final int WIDTH = 1000;
+	private static final int HEIGHT = 1000;
+
+	private double[] components;
+
+	@Setup
+	public void setUp()
+	{
+		// Flames are mostly dark, so the components are squared to put more of them close to 0.
+		Random random = new Random( 2013 );
+		this.components = new double[ WIDTH * HEIGHT * 3 ];
+
+		for( int i = 0; i < this.components.length; i++ )
+		{
+			double v = random.nextDouble();
+			this.components[ i ] = v * v;
+		}
+	}
+
+	@Benchmark
+	public long exact()
+	{
+		long sum = 0;
+
+		for( int i = 0; i < this.components.length; i++ )
+		{
+			sum += Color.sRGBEncodeExact( this.components[ i ], 255 );
+		}
+
+		return sum;
+	}
+
+	@Benchmark
+	public long table()
+	{
+		long sum = 0;
+
+		for( int i = 0; i < this.components.length; i++ )
+		{
+			sum += Color.sRGBEncode( this.components[ i ], 255 );
+		}
+
+		return sum;
+	}
+
+}
@@ -0,0 +1,93 @@
+package ch.epfl.flamemaker.flame;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.InterpolatedPalette;
+import ch.epfl.flamemaker.color.Palette;
+import ch.epfl.flamemaker.color.PrecomputedPalette;
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+
+/**
+ * The cost of hitting a point of an accumulator builder,
+ * and of computing the color of a point of an accumulator.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+public class AccumulatorBenchmark
+{
+
+	private static final int WIDTH = 500;
+	private static final int HEIGHT = 400;
+
+	/**
+	 * The number of precomputed points, a power of two.
+	 */
+	private static final int POINTS = 1 << 16;
+
+	private FlameAccumulator.Builder builder;
+	private FlameAccumulator accumulator;
+	private Palette palette;
+	private Palette precomputedPalette;
+
+	private double[] xs = new double[ POINTS ];
+	private double[] ys = new double[ POINTS ];
+	private double[] cs = new double[ POINTS ];
+	private int next = 0;
+
+	@Setup
+	public void setUp()
+	{
+		Rectangle frame = Fixture.SHARKFIN.frame();
+		Random random = new Random( 2013 );
+
+		for( int i = 0; i < POINTS; i++ )
+		{
+			this.xs[ i ] = frame.left() + random.nextDouble() * frame.width();
+			this.ys[ i ] = frame.bottom() + random.nextDouble() * frame.height();
+			this.cs[ i ] = random.nextDouble();
+		}
+
+		this.builder = new FlameAccumulator.Builder( frame, WIDTH, HEIGHT );
+		this.accumulator = Fixture.SHARKFIN.compute( WIDTH, HEIGHT, 10 );
+		this.palette = InterpolatedPalette.RGB_PALETTE;
+		this.precomputedPalette = new PrecomputedPalette( InterpolatedPalette.RGB_PALETTE );
+	}
+
+	@Benchmark
+	public void hit()
+	{
+		int i = this.next++ & ( POINTS - 1 );
+		this.builder.hit( this.xs[ i ], this.ys[ i ], this.cs[ i ] );
+	}
+
+	@Benchmark
+	public Color color()
+	{
+		int i = this.next++ % ( WIDTH * HEIGHT );
+
+		return this.accumulator.color( this.palette, Color.BLACK, i % WIDTH, i / WIDTH );
+	}
+
+	@Benchmark
+	public Color colorPrecomputed()
+	{
+		int i = this.next++ % ( WIDTH * HEIGHT );
+
+		return this.accumulator.color( this.precomputedPalette, Color.BLACK, i % WIDTH, i / WIDTH );
+	}
+
+}
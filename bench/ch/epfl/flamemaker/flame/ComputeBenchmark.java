@@ -0,0 +1,58 @@
+package ch.epfl.flamemaker.flame;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The time taken to compute the fixture fractals, at several sizes and densities.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 2 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class ComputeBenchmark
+{
+
+	@Param( { "SHARKFIN", "TURBULENCE", "BARNSLEY" } )
+	public Fixture fixture;
+
+	/**
+	 * The width of the fractal, its height being 4/5 of it.
+	 */
+	@Param( { "100", "500" } )
+	public int width;
+
+	@Param( { "10", "50" } )
+	public int density;
+
+	private Flame flame;
+
+	@Setup
+	public void setUp()
+	{
+		this.flame = this.fixture.flame();
+	}
+
+	@Benchmark
+	public FlameAccumulator compute()
+	{
+		return this.flame.compute( this.fixture.frame(), this.width, this.width * 4 / 5, this.density );
+	}
+
+}
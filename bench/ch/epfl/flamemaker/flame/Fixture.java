@@ -0,0 +1,83 @@
+package ch.epfl.flamemaker.flame;
+
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+
+/**
+ * The fractals drawn by {@link FlamePPMMaker}, used by the benchmarks.
+ * They are defined there only, and shared with the tests.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+public enum Fixture
+{
+
+	SHARKFIN
+	{
+		@Override
+		public Flame flame()
+		{
+			return FlamePPMMaker.sharkfinFlame();
+		}
+
+		@Override
+		public Rectangle frame()
+		{
+			return FlamePPMMaker.SHARKFIN_FRAME;
+		}
+	},
+
+	TURBULENCE
+	{
+		@Override
+		public Flame flame()
+		{
+			return FlamePPMMaker.turbulenceFlame();
+		}
+
+		@Override
+		public Rectangle frame()
+		{
+			return FlamePPMMaker.TURBULENCE_FRAME;
+		}
+	},
+
+	BARNSLEY
+	{
+		@Override
+		public Flame flame()
+		{
+			return FlamePPMMaker.barnsleyFlame();
+		}
+
+		@Override
+		public Rectangle frame()
+		{
+			return FlamePPMMaker.BARNSLEY_FRAME;
+		}
+	};
+
+	/**
+	 * @return The fractal.
+	 */
+	public abstract Flame flame();
+
+	/**
+	 * @return The frame it is drawn in.
+	 */
+	public abstract Rectangle frame();
+
+	/**
+	 * Compute the fractal.
+	 *
+	 * @param width The width of the fractal.
+	 * @param height The height of the fractal.
+	 * @param density The density of points.
+	 * @return The accumulator.
+	 */
+	public FlameAccumulator compute( int width, int height, int density )
+	{
+		return this.flame().compute( this.frame(), width, height, density );
+	}
+
+}
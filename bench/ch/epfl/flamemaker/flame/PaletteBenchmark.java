@@ -0,0 +1,93 @@
+package ch.epfl.flamemaker.flame;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.InterpolatedPalette;
+import ch.epfl.flamemaker.color.PrecomputedPalette;
+import ch.epfl.flamemaker.color.RandomPalette;
+
+/**
+ * The cost of looking a color up in the palettes.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+public class PaletteBenchmark
+{
+
+	/**
+	 * The step between two looked up indexes, so that they cover the whole palette.
+	 */
+	private static final double STEP = 1.0 / 1021;
+
+	private InterpolatedPalette interpolated;
+	private RandomPalette random;
+	private PrecomputedPalette precomputed;
+	private double[] rgb = new double[ 3 ];
+	private double index = 0;
+
+	@Setup
+	public void setUp()
+	{
+		this.interpolated = InterpolatedPalette.RGB_PALETTE;
+		this.random = new RandomPalette( 8 );
+		this.precomputed = new PrecomputedPalette( InterpolatedPalette.RGB_PALETTE );
+	}
+
+	private double nextIndex()
+	{
+		this.index += STEP;
+
+		if( this.index > 1 )
+		{
+			this.index -= 1;
+		}
+
+		return this.index;
+	}
+
+	@Benchmark
+	public Color interpolated()
+	{
+		return this.interpolated.colorForIndex( this.nextIndex() );
+	}
+
+	@Benchmark
+	public Color random()
+	{
+		return this.random.colorForIndex( this.nextIndex() );
+	}
+
+	@Benchmark
+	public Color precomputed()
+	{
+		return this.precomputed.colorForIndex( this.nextIndex() );
+	}
+
+	@Benchmark
+	public int precomputedPackedRGB()
+	{
+		return this.precomputed.packedRGBForIndex( this.nextIndex() );
+	}
+
+	@Benchmark
+	public double[] precomputedComponents()
+	{
+		this.precomputed.componentsForIndex( this.nextIndex(), this.rgb );
+
+		return this.rgb;
+	}
+
+}
@@ -0,0 +1,60 @@
+package ch.epfl.flamemaker.flame;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.epfl.flamemaker.util.RandomStreams;
+
+/**
+ * The time taken by the chaos game with the streams of {@link java.util.Random}
+ * and of {@link ch.epfl.flamemaker.util.Xoshiro256Random}, on the shark fin,
+ * whose transformations are cheap, so that drawing the random numbers is
+ * a large part of the time spent.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 2 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class RandomStreamsBenchmark
+{
+
+	/**
+	 * The name of the streams, in {@link RandomStreams}.
+	 */
+	@Param( { "JAVA_UTIL", "XOSHIRO256" } )
+	public String streams;
+
+	private RandomStreams randomStreams;
+
+	@Setup
+	public void setUp()
+	{
+		this.randomStreams = this.streams.equals( "JAVA_UTIL" ) ? RandomStreams.JAVA_UTIL : RandomStreams.XOSHIRO256;
+	}
+
+	@Benchmark
+	public FlameAccumulator compute()
+	{
+		FlameComputation computation = new FlameComputation( Fixture.SHARKFIN.flame(), Fixture.SHARKFIN.frame(), 500, 400, 50 );
+		computation.setRandomStreams( this.randomStreams );
+
+		return computation.compute();
+	}
+
+}
@@ -0,0 +1,77 @@
+package ch.epfl.flamemaker.flame;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ch.epfl.flamemaker.geometry2d.MutablePoint;
+import ch.epfl.flamemaker.geometry2d.Point;
+
+/**
+ * The cost of applying a Flame transformation made of a single variation.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+public class TransformationBenchmark
+{
+
+	/**
+	 * The index of the variation, in {@link Variation#ALL_VARIATIONS}.
+	 */
+	@Param( { "0", "1", "2", "3", "4", "5" } )
+	public int variation;
+
+	private FlameTransformation transformation;
+	private Point point;
+	private MutablePoint mutablePoint;
+
+	@Setup
+	public void setUp()
+	{
+		double[] weights = new double[ Variation.ALL_VARIATIONS.size() ];
+		weights[ this.variation ] = 1;
+
+		// The affine part of the first transformation of the shark fin.
+		this.transformation = new FlameTransformation(
+			Fixture.SHARKFIN.flame().transformations().get( 0 ).affineTransformation(),
+			weights
+		);
+		this.point = new Point( 0.3, -0.2 );
+		this.mutablePoint = new MutablePoint( 0.3, -0.2 );
+	}
+
+	@Benchmark
+	public Point transformPoint()
+	{
+		return this.transformation.transformPoint( this.point );
+	}
+
+	/**
+	 * Transform the point in place, as the chaos game does,
+	 * feeding each result back so that the point stays on the attractor.
+	 */
+	@Benchmark
+	public double transformInPlace()
+	{
+		this.transformation.transformInPlace( this.mutablePoint );
+
+		if( Double.isNaN( this.mutablePoint.x() ) || Double.isInfinite( this.mutablePoint.x() ) )
+		{
+			this.mutablePoint.set( 0.3, -0.2 );
+		}
+
+		return this.mutablePoint.x();
+	}
+
+}
@@ -0,0 +1,85 @@
+package ch.epfl.flamemaker.flame;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.InterpolatedPalette;
+import ch.epfl.flamemaker.util.NetpbmFormat;
+import ch.epfl.flamemaker.util.PGMWriter;
+import ch.epfl.flamemaker.util.PNGWriter;
+import ch.epfl.flamemaker.util.PPMWriter;
+
+/**
+ * The time taken to write an accumulator to a file, in each format.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+public class WriterBenchmark
+{
+
+	@Param( { "SHARKFIN", "TURBULENCE" } )
+	public Fixture fixture;
+
+	private FlameAccumulator accumulator;
+	private File file;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		this.accumulator = this.fixture.compute( 1000, 800, 20 );
+		this.file = File.createTempFile( "flame", ".image" );
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		this.file.delete();
+	}
+
+	@Benchmark
+	public void ppmPlain() throws IOException
+	{
+		new PPMWriter( this.file.getPath(), NetpbmFormat.PLAIN ).printAccumulator( this.accumulator, InterpolatedPalette.RGB_PALETTE, Color.BLACK );
+	}
+
+	@Benchmark
+	public void ppmRaw() throws IOException
+	{
+		new PPMWriter( this.file.getPath(), NetpbmFormat.RAW ).printAccumulator( this.accumulator, InterpolatedPalette.RGB_PALETTE, Color.BLACK );
+	}
+
+	@Benchmark
+	public void pgmRaw() throws IOException
+	{
+		new PGMWriter( this.file.getPath(), NetpbmFormat.RAW ).printAccumulator( this.accumulator );
+	}
+
+	@Benchmark
+	public void png() throws IOException
+	{
+		new PNGWriter( this.file.getPath() ).printAccumulator( this.accumulator, InterpolatedPalette.RGB_PALETTE, Color.BLACK );
+	}
+
+	@Benchmark
+	public void pngParallel() throws IOException
+	{
+		new PNGWriter( this.file.getPath(), Runtime.getRuntime().availableProcessors() ).printAccumulator( this.accumulator, InterpolatedPalette.RGB_PALETTE, Color.BLACK );
+	}
+
+}
@@ -0,0 +1,723 @@
+package ch.epfl.flamemaker.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.InterpolatedPalette;
+import ch.epfl.flamemaker.color.Palette;
+import ch.epfl.flamemaker.color.PrecomputedPalette;
+import ch.epfl.flamemaker.color.RandomPalette;
+import ch.epfl.flamemaker.flame.Flame;
+import ch.epfl.flamemaker.flame.FlameAccumulator;
+import ch.epfl.flamemaker.flame.FlameComputation;
+import ch.epfl.flamemaker.flame.FlameFile;
+import ch.epfl.flamemaker.flame.FlameImporter;
+import ch.epfl.flamemaker.util.NetpbmFormat;
+import ch.epfl.flamemaker.util.PNGWriter;
+import ch.epfl.flamemaker.util.PPMWriter;
+
+/**
+ * Render flame files to images from the command line, without the GUI.
+ *
+ * Every flame is rendered by a single thread, and as many flames are rendered
+ * at the same time as there are jobs, which bounds the memory taken by
+ * the histograms. A line is printed as each flame is done, with the number
+ * of flames to render once all the files have been read.
+ *
+ * The images are named after their files, and written to a single directory:
+ * a flame whose image would overwrite the one of another, like those of
+ * a/x.flm and b/x.flb, is left out and reported as a failure.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+public class BatchRenderer
+{
+
+	private static final String USAGE =
+		"Usage: java " + BatchRenderer.class.getName() + " [options] (file | directory | @list)...\n"
+		+ "\n"
+		+ "Renders every flame file given, every " + FlameFile.EXTENSION + ", " + FlameFile.BINARY_EXTENSION
+		+ " and " + FlameImporter.EXTENSION + " file of the\n"
+		+ "directories given, and every file listed, one per line, in the lists given.\n"
+		+ "Each flame of a " + FlameImporter.EXTENSION + " file, and of a " + FlameFile.BINARY_EXTENSION
+		+ " file holding several, is rendered\n"
+		+ "to an image of its own.\n"
+		+ "\n"
+		+ "  -w, --width N       The width of the images (default: 500).\n"
+		+ "  -h, --height N      The height of the images (default: from the frame of each flame).\n"
+		+ "  -d, --density N     The density of points (default: 50).\n"
+		+ "  -p, --palette P     rgb, or random:N for N random colors (default: the one of each file).\n"
+		+ "  -b, --background C  black or white (default: the one of each file).\n"
+		+ "  -f, --format F      png or ppm (default: png).\n"
+		+ "  -o, --output DIR    The directory to write the images to (default: .).\n"
+		+ "  -j, --jobs N        The number of files rendered at the same time\n"
+		+ "                      (default: the number of processors).\n"
+		+ "  -s, --seed N        The seed of the random numbers (default: " + Flame.DEFAULT_SEED + ").\n";
+
+	private int width = 500;
+	private int height = 0;
+	private int density = 50;
+	private Palette palette = null;
+	private Color background = null;
+	private String format = "png";
+	private File output = new File( "." );
+	private int jobs = Runtime.getRuntime().availableProcessors();
+	private long seed = Flame.DEFAULT_SEED;
+	private final List<File> files = new ArrayList<File>();
+
+	public static void main( String[] args )
+	{
+		System.exit( BatchRenderer.run( args, System.out, System.err ) );
+	}
+
+	/**
+	 * Render the files given on the command line.
+	 *
+	 * @param args The command line arguments.
+	 * @param out Where to print the progress.
+	 * @param err Where to print the errors.
+	 * @return The exit status: 0 if every file has been rendered,
+	 * 		   1 if some failed, and 2 if the arguments are invalid.
+	 */
+	public static int run( String[] args, PrintStream out, PrintStream err )
+	{
+		BatchRenderer renderer = new BatchRenderer();
+
+		try
+		{
+			renderer.parse( args );
+		}
+		catch( IllegalArgumentException e )
+		{
+			err.println( e.getMessage() );
+			err.println();
+			err.print( USAGE );
+
+			return 2;
+		}
+		catch( IOException e )
+		{
+			err.println( e.getMessage() );
+
+			return 2;
+		}
+
+		return renderer.renderAll( out, err ) ? 0 : 1;
+	}
+
+	/**
+	 * Read the options and the files to render.
+	 *
+	 * @throws IllegalArgumentException If an option is invalid.
+	 * @throws IOException If a list of files cannot be read.
+	 */
+	private void parse( String[] args ) throws IOException
+	{
+		for( int i = 0; i < args.length; i++ )
+		{
+			String arg = args[ i ];
+
+			if( !arg.startsWith( "-" ) )
+			{
+				this.addFiles( arg );
+
+				continue;
+			}
+
+			if( i + 1 == args.length )
+			{
+				throw new IllegalArgumentException( "Missing value of " + arg + "." );
+			}
+
+			String value = args[ ++i ];
+
+			if( arg.equals( "-w" ) || arg.equals( "--width" ) )
+			{
+				this.width = BatchRenderer.positive( arg, value );
+			}
+			else if( arg.equals( "-h" ) || arg.equals( "--height" ) )
+			{
+				this.height = BatchRenderer.positive( arg, value );
+			}
+			else if( arg.equals( "-d" ) || arg.equals( "--density" ) )
+			{
+				this.density = BatchRenderer.positive( arg, value );
+			}
+			else if( arg.equals( "-p" ) || arg.equals( "--palette" ) )
+			{
+				this.palette = BatchRenderer.palette( value );
+			}
+			else if( arg.equals( "-b" ) || arg.equals( "--background" ) )
+			{
+				this.background = BatchRenderer.background( value );
+			}
+			else if( arg.equals( "-f" ) || arg.equals( "--format" ) )
+			{
+				if( !value.equals( "png" ) && !value.equals( "ppm" ) )
+				{
+					throw new IllegalArgumentException( "Unknown format " + value + "." );
+				}
+
+				this.format = value;
+			}
+			else if( arg.equals( "-o" ) || arg.equals( "--output" ) )
+			{
+				this.output = new File( value );
+			}
+			else if( arg.equals( "-j" ) || arg.equals( "--jobs" ) )
+			{
+				this.jobs = BatchRenderer.positive( arg, value );
+			}
+			else if( arg.equals( "-s" ) || arg.equals( "--seed" ) )
+			{
+				try
+				{
+					this.seed = Long.parseLong( value );
+				}
+				catch( NumberFormatException e )
+				{
+					throw new IllegalArgumentException( "The seed must be an integer." );
+				}
+			}
+			else
+			{
+				throw new IllegalArgumentException( "Unknown option " + arg + "." );
+			}
+		}
+
+		if( this.files.isEmpty() )
+		{
+			throw new IllegalArgumentException( "No flame file to render." );
+		}
+	}
+
+	/**
+	 * Add the files given by an argument: a list of files if it starts with @,
+	 * the flame files of a directory, or a single file.
+	 */
+	private void addFiles( String arg ) throws IOException
+	{
+		if( arg.startsWith( "@" ) )
+		{
+			BufferedReader list = new BufferedReader( new InputStreamReader( new FileInputStream( arg.substring( 1 ) ), "UTF-8" ) );
+
+			try
+			{
+				for( String line = list.readLine(); line != null; line = list.readLine() )
+				{
+					if( !line.trim().isEmpty() )
+					{
+						this.files.add( new File( line.trim() ) );
+					}
+				}
+			}
+			finally
+			{
+				list.close();
+			}
+
+			return;
+		}
+
+		File file = new File( arg );
+		File[] children = file.listFiles();
+
+		if( children == null )
+		{
+			this.files.add( file );
+
+			return;
+		}
+
+		// In the same order on every system, for the progress to be comparable.
+		Arrays.sort( children );
+
+		for( File child : children )
+		{
+			if( child.isFile() && BatchRenderer.isFlameFile( child ) )
+			{
+				this.files.add( child );
+			}
+		}
+	}
+
+	private static boolean isFlameFile( File file )
+	{
+		String name = file.getName();
+
+		return name.endsWith( FlameFile.EXTENSION ) || name.endsWith( FlameFile.BINARY_EXTENSION ) || name.endsWith( FlameImporter.EXTENSION );
+	}
+
+	private static int positive( String option, String value )
+	{
+		try
+		{
+			int number = Integer.parseInt( value );
+
+			if( number > 0 )
+			{
+				return number;
+			}
+		}
+		catch( NumberFormatException e )
+		{
+			// Reported below.
+		}
+
+		throw new IllegalArgumentException( option + " must be a strictly positive integer." );
+	}
+
+	private static Palette palette( String name )
+	{
+		if( name.equals( "rgb" ) )
+		{
+			return new PrecomputedPalette( InterpolatedPalette.RGB_PALETTE );
+		}
+
+		if( name.startsWith( "random:" ) )
+		{
+			int colors = BatchRenderer.positive( "The number of random colors", name.substring( "random:".length() ) );
+
+			if( colors < 2 )
+			{
+				throw new IllegalArgumentException( "A palette needs at least 2 colors." );
+			}
+
+			return new PrecomputedPalette( new RandomPalette( colors ) );
+		}
+
+		throw new IllegalArgumentException( "Unknown palette " + name + "." );
+	}
+
+	private static Color background( String name )
+	{
+		if( name.equals( "black" ) )
+		{
+			return Color.BLACK;
+		}
+
+		if( name.equals( "white" ) )
+		{
+			return Color.WHITE;
+		}
+
+		throw new IllegalArgumentException( "Unknown background " + name + "." );
+	}
+
+	/**
+	 * Render every file on a pool of threads, printing a line as each one is done.
+	 *
+	 * The flames of an XML file are handed to the threads as they are imported,
+	 * and the import waits while too many of them are waiting to be rendered,
+	 * so that a large library is never held in memory at once.
+	 *
+	 * @return Whether every file has been rendered.
+	 */
+	private boolean renderAll( PrintStream out, final PrintStream err )
+	{
+		if( !this.output.isDirectory() && !this.output.mkdirs() )
+		{
+			err.println( "The directory " + this.output + " cannot be created." );
+
+			return false;
+		}
+
+		final Renders renders = new Renders( out, err );
+
+		try
+		{
+			for( final File file : this.files )
+			{
+				if( file.getName().endsWith( FlameFile.BINARY_EXTENSION ) )
+				{
+					this.renderBinary( file, renders );
+
+					continue;
+				}
+
+				if( !file.getName().endsWith( FlameImporter.EXTENSION ) )
+				{
+					renders.submit( file.toString(), BatchRenderer.baseName( file ), new Callable<String>()
+					{
+						@Override
+						public String call() throws IOException
+						{
+							long start = System.nanoTime();
+							File image = BatchRenderer.this.render( FlameFile.read( file ), BatchRenderer.baseName( file ) );
+
+							return file + " -> " + image + " (" + ( System.nanoTime() - start ) / 1000000 + " ms)";
+						}
+					} );
+
+					continue;
+				}
+
+				// The flames of an XML file are rendered separately, each one by a task of its own.
+				try
+				{
+					FlameImporter.read( file, new FlameImporter.Listener()
+					{
+						private int count = 0;
+
+						@Override
+						public boolean flameImported( String name, FlameFile flame, SortedSet<String> unsupported ) throws IOException
+						{
+							String source = this.source( name );
+							String image = BatchRenderer.baseName( file ) + "-" + this.count;
+
+							if( !unsupported.isEmpty() )
+							{
+								err.println( source + ": left out " + unsupported + "." );
+							}
+
+							renders.submit( source, flame, image );
+
+							return true;
+						}
+
+						@Override
+						public boolean flameFailed( String name, String error )
+						{
+							// The next flames of the file are rendered all the same.
+							renders.fail( this.source( name ) + ": " + error );
+
+							return true;
+						}
+
+						private String source( String name )
+						{
+							return file + ", flame " + ( ++this.count ) + ( name == null ? "" : " (" + name + ")" );
+						}
+					} );
+				}
+				catch( InterruptedIOException e )
+				{
+					throw e;
+				}
+				catch( IOException e )
+				{
+					renders.fail( e.getMessage() );
+				}
+			}
+
+			return renders.finish();
+		}
+		catch( InterruptedIOException e )
+		{
+			Thread.currentThread().interrupt();
+			err.println( "The rendering has been interrupted." );
+
+			return false;
+		}
+		finally
+		{
+			renders.shutdown();
+		}
+	}
+
+	/**
+	 * Render each flame of a binary file separately, as it is read. The images are
+	 * numbered after the file if it holds several flames, and named after it otherwise.
+	 */
+	private void renderBinary( final File file, final Renders renders ) throws InterruptedIOException
+	{
+		final String base = BatchRenderer.baseName( file );
+
+		try
+		{
+			InputStream input = new BufferedInputStream( new FileInputStream( file ) );
+
+			try
+			{
+				// The first flame is kept until the second one tells whether to number it.
+				final List<FlameFile> first = new ArrayList<FlameFile>( 1 );
+
+				int count = FlameFile.readBinary( input, new FlameFile.Listener()
+				{
+					private int count = 0;
+
+					@Override
+					public boolean flameRead( FlameFile flame ) throws IOException
+					{
+						this.count++;
+
+						if( this.count == 1 )
+						{
+							first.add( flame );
+
+							return true;
+						}
+
+						if( this.count == 2 )
+						{
+							renders.submit( file + ", flame 1", first.remove( 0 ), base + "-1" );
+						}
+
+						renders.submit( file + ", flame " + this.count, flame, base + "-" + this.count );
+
+						return true;
+					}
+				} );
+
+				if( count == 1 )
+				{
+					renders.submit( file.toString(), first.get( 0 ), base );
+				}
+				else if( count == 0 )
+				{
+					renders.fail( file + ": There is no flame." );
+				}
+			}
+			finally
+			{
+				input.close();
+			}
+		}
+		catch( IOException e )
+		{
+			if( Thread.currentThread().isInterrupted() )
+			{
+				throw new InterruptedIOException( e.getMessage() );
+			}
+
+			renders.fail( file + ": " + e.getMessage() );
+		}
+	}
+
+	/**
+	 * @param source Where the flame comes from, for the progress.
+	 * @param flame The flame.
+	 * @param image The name of its image, without its extension.
+	 * @return A task rendering the flame, and returning its line of progress.
+	 */
+	private Callable<String> task( final String source, final FlameFile flame, final String image )
+	{
+		return new Callable<String>()
+		{
+			@Override
+			public String call() throws IOException
+			{
+				long start = System.nanoTime();
+				File rendered = BatchRenderer.this.render( flame, image );
+
+				return source + " -> " + rendered + " (" + ( System.nanoTime() - start ) / 1000000 + " ms)";
+			}
+		};
+	}
+
+	/**
+	 * The renders handed to the pool of threads, and their progress.
+	 */
+	private final class Renders
+	{
+
+		private final PrintStream out;
+		private final PrintStream err;
+		private final ExecutorService executor = Executors.newFixedThreadPool( BatchRenderer.this.jobs );
+		private final CompletionService<String> completion = new ExecutorCompletionService<String>( this.executor );
+
+		/**
+		 * The number of renders submitted, and the number of those done.
+		 */
+		private int submitted = 0;
+		private int done = 0;
+
+		private boolean success = true;
+
+		/**
+		 * The sources of the images, by name.
+		 */
+		private final Map<String, String> images = new HashMap<String, String>();
+
+		Renders( PrintStream out, PrintStream err )
+		{
+			this.out = out;
+			this.err = err;
+		}
+
+		/**
+		 * Submit the render of a flame, once few enough renders are waiting for a thread.
+		 *
+		 * @param source Where the flame comes from, for the progress.
+		 * @param flame The flame.
+		 * @param image The name of its image, without its extension.
+		 * @throws InterruptedIOException If the thread is interrupted while waiting.
+		 */
+		void submit( String source, FlameFile flame, String image ) throws InterruptedIOException
+		{
+			this.submit( source, image, BatchRenderer.this.task( source, flame, image ) );
+		}
+
+		/**
+		 * Submit a render, once few enough of them are waiting for a thread,
+		 * unless its image has the name of another one, which it would overwrite.
+		 *
+		 * @param source Where the flame comes from, for the errors.
+		 * @param image The name of its image, without its extension.
+		 * @param render The render, returning its line of progress.
+		 * @throws InterruptedIOException If the thread is interrupted while waiting.
+		 */
+		void submit( String source, String image, Callable<String> render ) throws InterruptedIOException
+		{
+			// Lower cased, for the names not to collide on file systems ignoring case either.
+			String name = image.toLowerCase( Locale.ROOT );
+
+			if( this.images.containsKey( name ) )
+			{
+				this.fail( source + ": Left out, since its image " + image + " would overwrite the one of " + this.images.get( name ) + "." );
+
+				return;
+			}
+
+			this.images.put( name, source );
+
+			// Twice as many as there are threads, for none of them to wait for the import.
+			while( this.submitted - this.done >= 2 * BatchRenderer.this.jobs )
+			{
+				this.take( "[" + ( this.done + 1 ) + "] " );
+			}
+
+			this.completion.submit( render );
+			this.submitted++;
+		}
+
+		/**
+		 * Report a flame which cannot be rendered.
+		 */
+		void fail( String error )
+		{
+			this.err.println( error );
+			this.success = false;
+		}
+
+		/**
+		 * Wait for the renders left, now that all of them are submitted.
+		 *
+		 * @return Whether every render has succeeded.
+		 * @throws InterruptedIOException If the thread is interrupted while waiting.
+		 */
+		boolean finish() throws InterruptedIOException
+		{
+			while( this.done < this.submitted )
+			{
+				this.take( "[" + ( this.done + 1 ) + "/" + this.submitted + "] " );
+			}
+
+			return this.success;
+		}
+
+		void shutdown()
+		{
+			this.executor.shutdownNow();
+		}
+
+		/**
+		 * Wait for a render to be done, and print its result.
+		 */
+		private void take( String progress ) throws InterruptedIOException
+		{
+			try
+			{
+				Future<String> render = this.completion.take();
+				this.done++;
+
+				try
+				{
+					this.out.println( progress + render.get() );
+				}
+				catch( ExecutionException e )
+				{
+					this.fail( progress + e.getCause().toString() );
+				}
+			}
+			catch( InterruptedException e )
+			{
+				throw new InterruptedIOException( "The rendering has been interrupted." );
+			}
+		}
+
+	}
+
+	/**
+	 * @param file A flame file.
+	 * @return Its name, without its extension.
+	 */
+	private static String baseName( File file )
+	{
+		String name = file.getName();
+
+		if( name.endsWith( FlameFile.EXTENSION ) || name.endsWith( FlameFile.BINARY_EXTENSION ) || name.endsWith( FlameImporter.EXTENSION ) )
+		{
+			name = name.substring( 0, name.lastIndexOf( '.' ) );
+		}
+
+		return name;
+	}
+
+	/**
+	 * Render a flame to an image in the output directory.
+	 *
+	 * @param flame The flame.
+	 * @param name The name of the image, without its extension.
+	 * @return The image file.
+	 * @throws IOException If the image cannot be written.
+	 */
+	private File render( FlameFile flame, String name ) throws IOException
+	{
+		int height = this.height > 0
+				   ? this.height
+				   : Math.max( 1, ( int )Math.round( this.width / flame.frame().aspectRatio() ) );
+
+		FlameComputation computation = new FlameComputation( flame.flame(), flame.frame(), this.width, height, this.density );
+		computation.setSeed( this.seed );
+
+		FlameAccumulator accumulator = computation.compute();
+
+		File image = new File( this.output, name + "." + this.format );
+		Palette palette = this.palette != null ? this.palette : new PrecomputedPalette( flame.palette() );
+		Color background = this.background != null ? this.background : flame.background();
+
+		try
+		{
+			if( this.format.equals( "png" ) )
+			{
+				// The files are already rendered in parallel.
+				new PNGWriter( image.getPath(), 1 ).printAccumulator( accumulator, palette, background );
+			}
+			else
+			{
+				new PPMWriter( image.getPath(), NetpbmFormat.RAW ).printAccumulator( accumulator, palette, background );
+			}
+		}
+		catch( IOException e )
+		{
+			throw new IOException( image + ": " + e.getMessage(), e );
+		}
+
+		return image;
+	}
+
+}
@@ -0,0 +1,271 @@
+package ch.epfl.flamemaker.cli;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import ch.epfl.flamemaker.flame.FlameFile;
+
+public class BatchRendererTest
+{
+	private static final String FLAME =
+		"frame 0 0 4 3\n"
+		+ "transformation 0.5 0 0 0 0.5 0 1 0 0 0 0 0\n"
+		+ "transformation 0.5 0 1 0 0.5 0 1 0 0 0 0 0\n"
+		+ "transformation 0.5 0 0 0 0.5 1 1 0 0 0 0 0\n";
+
+	private static final String LIBRARY =
+		"<flames>\n"
+		+ "  <flame name=\"first\" size=\"40 30\" scale=\"10\"><xform weight=\"1\" linear=\"1\" coefs=\"0.5 0 0 0.5 0 0\"/></flame>\n"
+		+ "  <flame name=\"bad\" size=\"40 30\"><xform weight=\"1\" linear=\"1\"/></flame>\n"
+		+ "  <flame name=\"third\" size=\"40 30\" scale=\"10\"><xform weight=\"1\" swirl=\"1\" coefs=\"0.5 0 0 0.5 0 0\"/></flame>\n"
+		+ "</flames>\n";
+
+	private File directory;
+	private String out;
+	private String err;
+
+	@Test
+	public void testInvalidArguments() throws IOException
+	{
+		this.directory = temporaryDirectory();
+
+		try
+		{
+			assertEquals( 2, this.run() );
+			assertEquals( 2, this.run( "-w" ) );
+			assertEquals( 2, this.run( "-w", "0", "x.flm" ) );
+			assertEquals( 2, this.run( "-f", "gif", "x.flm" ) );
+			assertEquals( 2, this.run( "-p", "random:1", "x.flm" ) );
+			assertEquals( 2, this.run( "--unknown", "1", "x.flm" ) );
+			assertTrue( this.err.contains( "Unknown option --unknown." ) );
+			assertTrue( this.err.contains( "Usage:" ) );
+			assertEquals( 2, this.run( "@" + new File( this.directory, "missing.txt" ) ) );
+		}
+		finally
+		{
+			delete( this.directory );
+		}
+	}
+
+	@Test
+	public void testDirectory() throws IOException
+	{
+		this.directory = temporaryDirectory();
+
+		try
+		{
+			File flames = new File( this.directory, "flames" );
+			assertTrue( flames.mkdir() );
+
+			write( new File( flames, "a.flm" ), FLAME );
+			writeBinary( new File( flames, "b.flb" ), 1 );
+			writeBinary( new File( flames, "c.flb" ), 2 );
+			write( new File( flames, "notes.txt" ), "Not a flame." );
+
+			File images = new File( this.directory, "images" );
+
+			assertEquals( 0, this.run( "-w", "20", "-d", "1", "-j", "2", "-f", "ppm", "-o", images.getPath(), flames.getPath() ) );
+			assertEquals( Arrays.asList( "a.ppm", "b.ppm", "c-1.ppm", "c-2.ppm" ), names( images ) );
+			assertTrue( this.out.contains( "[4/4] " ) );
+			assertEquals( "", this.err );
+		}
+		finally
+		{
+			delete( this.directory );
+		}
+	}
+
+	@Test
+	public void testList() throws IOException
+	{
+		this.directory = temporaryDirectory();
+
+		try
+		{
+			File flame = new File( this.directory, "a.flm" );
+			write( flame, FLAME );
+
+			File list = new File( this.directory, "list.txt" );
+			write( list, "\n  " + flame.getPath() + "  \n\n" );
+
+			File images = new File( this.directory, "images" );
+
+			assertEquals( 0, this.run( "-w", "20", "-h", "10", "-d", "1", "--output", images.getPath(), "@" + list.getPath() ) );
+			assertEquals( Arrays.asList( "a.png" ), names( images ) );
+		}
+		finally
+		{
+			delete( this.directory );
+		}
+	}
+
+	@Test
+	public void testLibraryWithBadFlame() throws IOException
+	{
+		this.directory = temporaryDirectory();
+
+		try
+		{
+			File library = new File( this.directory, "library.flame" );
+			write( library, LIBRARY );
+
+			File images = new File( this.directory, "images" );
+
+			assertEquals( 1, this.run( "-w", "20", "-d", "1", "-o", images.getPath(), library.getPath() ) );
+			assertEquals( Arrays.asList( "library-1.png", "library-3.png" ), names( images ) );
+			assertTrue( this.err.contains( "flame 2 (bad)" ) );
+		}
+		finally
+		{
+			delete( this.directory );
+		}
+	}
+
+	@Test
+	public void testCollisions() throws IOException
+	{
+		this.directory = temporaryDirectory();
+
+		try
+		{
+			File a = new File( this.directory, "a" );
+			File b = new File( this.directory, "b" );
+			assertTrue( a.mkdir() && b.mkdir() );
+
+			write( new File( a, "x.flm" ), FLAME );
+			write( new File( b, "x.flm" ), FLAME );
+			writeBinary( new File( b, "x.flb" ), 1 );
+
+			File images = new File( this.directory, "images" );
+
+			assertEquals( 1, this.run( "-w", "20", "-d", "1", "-o", images.getPath(), a.getPath(), b.getPath() ) );
+			assertEquals( Arrays.asList( "x.png" ), names( images ) );
+			assertTrue( this.out.contains( new File( a, "x.flm" ).getPath() ) );
+			assertTrue( this.err.contains( new File( b, "x.flm" ) + ": Left out" ) );
+			assertTrue( this.err.contains( new File( b, "x.flb" ) + ": Left out" ) );
+		}
+		finally
+		{
+			delete( this.directory );
+		}
+	}
+
+	@Test
+	public void testFailures() throws IOException
+	{
+		this.directory = temporaryDirectory();
+
+		try
+		{
+			File invalid = new File( this.directory, "invalid.flm" );
+			write( invalid, "frame 0 0 4\n" );
+
+			File images = new File( this.directory, "images" );
+
+			assertEquals( 1, this.run( "-w", "20", "-d", "1", "-o", images.getPath(), invalid.getPath(), new File( this.directory, "missing.flm" ).getPath() ) );
+			assertTrue( names( images ).isEmpty() );
+			assertTrue( this.err.contains( invalid.getPath() ) );
+			assertTrue( this.err.contains( "missing.flm" ) );
+			assertFalse( this.err.contains( "null" ) );
+		}
+		finally
+		{
+			delete( this.directory );
+		}
+	}
+
+	private int run( String... args )
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+		int status = BatchRenderer.run( args, new PrintStream( out, true ), new PrintStream( err, true ) );
+
+		this.out = out.toString();
+		this.err = err.toString();
+
+		return status;
+	}
+
+	private static void write( File file, String text ) throws IOException
+	{
+		OutputStream output = new FileOutputStream( file );
+
+		try
+		{
+			output.write( text.getBytes( "UTF-8" ) );
+		}
+		finally
+		{
+			output.close();
+		}
+	}
+
+	private static void writeBinary( File file, int count ) throws IOException
+	{
+		File text = new File( file.getPath() + FlameFile.EXTENSION );
+		write( text, FLAME );
+
+		FlameFile flame = FlameFile.read( text );
+		text.delete();
+
+		OutputStream output = new FileOutputStream( file );
+
+		try
+		{
+			FlameFile.writeBinary( output, Collections.nCopies( count, flame ) );
+		}
+		finally
+		{
+			output.close();
+		}
+	}
+
+	private static List<String> names( File directory )
+	{
+		String[] names = directory.list();
+
+		if( names == null )
+		{
+			return Collections.emptyList();
+		}
+
+		Arrays.sort( names );
+
+		return Arrays.asList( names );
+	}
+
+	private static File temporaryDirectory() throws IOException
+	{
+		File directory = File.createTempFile( "flames", "" );
+		assertTrue( directory.delete() && directory.mkdir() );
+
+		return directory;
+	}
+
+	private static void delete( File file )
+	{
+		File[] children = file.listFiles();
+
+		if( children != null )
+		{
+			for( File child : children )
+			{
+				delete( child );
+			}
+		}
+
+		file.delete();
+	}
+}
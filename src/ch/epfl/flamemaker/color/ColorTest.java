@@ -0,0 +1,44 @@
+package ch.epfl.flamemaker.color;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ColorTest
+{
+	private static final int STEPS = 1000000;
+
+	@Test
+	public void testSRGBEncodeIsAtMostOneOff()
+	{
+		for( int i = 0; i <= STEPS; i++ )
+		{
+			double v = ( double )i / STEPS;
+
+			assertEquals( Color.sRGBEncodeExact( v, 255 ), Color.sRGBEncode( v, 255 ), 1 );
+		}
+	}
+
+	@Test
+	public void testSRGBEncodeError()
+	{
+		// With that many levels, the integers show the error of the approximation itself.
+		int max = 1 << 24;
+
+		for( int i = 0; i <= STEPS; i++ )
+		{
+			double v = ( double )i / STEPS;
+
+			assertEquals( Color.sRGBEncodeExact( v, max ), Color.sRGBEncode( v, max ), 1.7e-5 * max + 1 );
+		}
+	}
+
+	@Test
+	public void testSRGBEncodeBounds()
+	{
+		assertEquals( 0, Color.sRGBEncode( 0, 255 ) );
+		assertEquals( Color.sRGBEncodeExact( 1, 255 ), Color.sRGBEncode( 1, 255 ) );
+		assertEquals( Color.sRGBEncodeExact( -0.5, 255 ), Color.sRGBEncode( -0.5, 255 ) );
+		assertEquals( Color.sRGBEncodeExact( 2, 255 ), Color.sRGBEncode( 2, 255 ) );
+	}
+}
@@ -1,6 +1,8 @@
 package ch.epfl.flamemaker.color;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -22,7 +24,7 @@ public class InterpolatedPalette implements Palette
 	/**
 	 * The colors this palette interpolates between.
 	 */
-	private List<Color> colors;
+	private final List<Color> colors;
 	
 	
 	/**
@@ -37,7 +39,15 @@ public class InterpolatedPalette implements Palette
 			throw new IllegalArgumentException( "The colors list must contain at least 2 colors." );
 		}
 		
-		this.colors = colors;
+		this.colors = new ArrayList<Color>( colors );
+	}
+	
+	/**
+	 * @return The colors this palette interpolates between, which cannot be modified.
+	 */
+	public List<Color> colors()
+	{
+		return Collections.unmodifiableList( this.colors );
 	}
 	
 	/**
@@ -85,4 +95,19 @@ public class InterpolatedPalette implements Palette
 		return first.mixWith( second, p );
 	}
 	
+	/**
+	 * Two interpolated palettes are equal if they interpolate between the same colors.
+	 */
+	@Override
+	public boolean equals( Object other )
+	{
+		return other instanceof InterpolatedPalette && this.colors.equals( ( ( InterpolatedPalette )other ).colors );
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return this.colors.hashCode();
+	}
+	
 }
@@ -0,0 +1,158 @@
+package ch.epfl.flamemaker.color;
+
+/**
+ * Represents a color palette that samples another palette at regularly spaced
+ * indexes once and for all, and then returns the nearest sample for any index.
+ *
+ * Looking a color up thus costs a multiplication and an array access, without
+ * any allocation, whatever the sampled palette. The resolution, i.e. the number
+ * of samples, trades quality for memory: the index of the sample returned is at
+ * most 1 / ( 2 * ( resolution - 1 ) ) away from the index requested.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+public class PrecomputedPalette implements Palette
+{
+
+	/**
+	 * The default number of samples, which is fine enough for the difference
+	 * with the sampled palette to be invisible once colors are encoded on 8 bits.
+	 */
+	public static final int DEFAULT_RESOLUTION = 4096;
+
+	private final Palette palette;
+	private final int resolution;
+
+	private final Color[] colors;
+	private final int[] packedRGB;
+	private final double[] red;
+	private final double[] green;
+	private final double[] blue;
+
+	/**
+	 * Sample the given palette with the default resolution.
+	 *
+	 * @param palette The palette to sample.
+	 */
+	public PrecomputedPalette( Palette palette )
+	{
+		this( palette, DEFAULT_RESOLUTION );
+	}
+
+	/**
+	 * Sample the given palette with the given resolution.
+	 *
+	 * @param palette The palette to sample.
+	 * @param resolution The number of samples, at least 2.
+	 */
+	public PrecomputedPalette( Palette palette, int resolution )
+	{
+		if( resolution < 2 )
+		{
+			throw new IllegalArgumentException( "resolution must be greater or equal to 2." );
+		}
+
+		this.palette = palette;
+		this.resolution = resolution;
+		this.colors = new Color[ resolution ];
+		this.packedRGB = new int[ resolution ];
+		this.red = new double[ resolution ];
+		this.green = new double[ resolution ];
+		this.blue = new double[ resolution ];
+
+		for( int i = 0; i < resolution; i++ )
+		{
+			Color color = palette.colorForIndex( ( double )i / ( resolution - 1 ) );
+
+			this.colors[ i ] = color;
+			this.packedRGB[ i ] = color.asPackedRGB();
+			this.red[ i ] = color.red();
+			this.green[ i ] = color.green();
+			this.blue[ i ] = color.blue();
+		}
+	}
+
+	/**
+	 * @return The number of samples of this palette.
+	 */
+	public int resolution()
+	{
+		return this.resolution;
+	}
+
+	/**
+	 * Return the sample nearest to the given index, without any allocation.
+	 *
+	 * @return A color
+	 */
+	@Override
+	public Color colorForIndex( double index )
+	{
+		return this.colors[ this.sampleFor( index ) ];
+	}
+
+	/**
+	 * Return the sample nearest to the given index, packed like {@link Color#asPackedRGB()}.
+	 *
+	 * @param index An index between 0 and 1.
+	 * @return The gamma-encoded color, packed into an integer.
+	 */
+	public int packedRGBForIndex( double index )
+	{
+		return this.packedRGB[ this.sampleFor( index ) ];
+	}
+
+	/**
+	 * Write the components of the sample nearest to the given index into the given array.
+	 *
+	 * @param index An index between 0 and 1.
+	 * @param rgb An array of at least 3 elements, which will hold the red, green
+	 * 			  and blue components, in that order.
+	 */
+	public void componentsForIndex( double index, double[] rgb )
+	{
+		int i = this.sampleFor( index );
+
+		rgb[ 0 ] = this.red[ i ];
+		rgb[ 1 ] = this.green[ i ];
+		rgb[ 2 ] = this.blue[ i ];
+	}
+
+	/**
+	 * @param index An index between 0 and 1.
+	 * @return The position of the sample nearest to that index.
+	 */
+	private int sampleFor( double index )
+	{
+		if( index < 0.0 || index > 1.0 )
+		{
+			throw new IllegalArgumentException( "index should be between 0 and 1." );
+		}
+
+		return ( int )( index * ( this.resolution - 1 ) + 0.5 );
+	}
+
+	/**
+	 * Two precomputed palettes are equal if they sample equal palettes with the same resolution.
+	 */
+	@Override
+	public boolean equals( Object other )
+	{
+		if( !( other instanceof PrecomputedPalette ) )
+		{
+			return false;
+		}
+
+		PrecomputedPalette that = ( PrecomputedPalette )other;
+
+		return this.resolution == that.resolution && this.palette.equals( that.palette );
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return 31 * this.palette.hashCode() + this.resolution;
+	}
+
+}
@@ -0,0 +1,63 @@
+package ch.epfl.flamemaker.color;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PrecomputedPaletteTest
+{
+	private static final int RESOLUTION = 257;
+
+	@Test
+	public void testSamplesEqualThePalette()
+	{
+		Palette[] palettes = { InterpolatedPalette.RGB_PALETTE, new RandomPalette( 5 ) };
+
+		for( Palette palette : palettes )
+		{
+			PrecomputedPalette precomputed = new PrecomputedPalette( palette, RESOLUTION );
+			double[] rgb = new double[ 3 ];
+
+			for( int i = 0; i < RESOLUTION; i++ )
+			{
+				double index = ( double )i / ( RESOLUTION - 1 );
+				Color expected = palette.colorForIndex( index );
+
+				assertEquals( expected, precomputed.colorForIndex( index ) );
+				assertEquals( expected.asPackedRGB(), precomputed.packedRGBForIndex( index ) );
+
+				precomputed.componentsForIndex( index, rgb );
+				assertEquals( expected, new Color( rgb[ 0 ], rgb[ 1 ], rgb[ 2 ] ) );
+			}
+		}
+	}
+
+	@Test
+	public void testNearestSample()
+	{
+		Palette palette = InterpolatedPalette.RGB_PALETTE;
+		PrecomputedPalette precomputed = new PrecomputedPalette( palette, RESOLUTION );
+		Random random = new Random( 2013 );
+		double[] rgb = new double[ 3 ];
+
+		for( int n = 0; n < 10000; n++ )
+		{
+			double index = random.nextDouble();
+			Color expected = palette.colorForIndex( Math.round( index * ( RESOLUTION - 1 ) ) / ( double )( RESOLUTION - 1 ) );
+
+			assertEquals( expected, precomputed.colorForIndex( index ) );
+			assertEquals( expected.asPackedRGB(), precomputed.packedRGBForIndex( index ) );
+
+			precomputed.componentsForIndex( index, rgb );
+			assertEquals( expected, new Color( rgb[ 0 ], rgb[ 1 ], rgb[ 2 ] ) );
+		}
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testIndexOutOfRange()
+	{
+		new PrecomputedPalette( InterpolatedPalette.RGB_PALETTE ).packedRGBForIndex( 1.5 );
+	}
+}
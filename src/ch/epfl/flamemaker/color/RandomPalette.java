@@ -12,7 +12,7 @@ import java.util.ArrayList;
 public class RandomPalette implements Palette
 {
 
-	private InterpolatedPalette interpolatedPalette;
+	private final InterpolatedPalette interpolatedPalette;
 	
 	/**
 	 * Create a new random palette that interpolates between n random colors.
@@ -46,5 +46,20 @@ public class RandomPalette implements Palette
 	{
 		return this.interpolatedPalette.colorForIndex( index );
 	}
+	
+	/**
+	 * Two random palettes are equal if they interpolate between the same colors.
+	 */
+	@Override
+	public boolean equals( Object other )
+	{
+		return other instanceof RandomPalette && this.interpolatedPalette.equals( ( ( RandomPalette )other ).interpolatedPalette );
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return this.interpolatedPalette.hashCode();
+	}
 
 }
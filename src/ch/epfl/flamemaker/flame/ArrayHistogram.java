@@ -0,0 +1,83 @@
+package ch.epfl.flamemaker.flame;
+
+/**
+ * A histogram stored in arrays, on the heap.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+final class ArrayHistogram extends Histogram
+{
+
+	private final int[] hitCount;
+	private final double[] colorIndexSum;
+
+	/**
+	 * Create an empty histogram.
+	 *
+	 * @param size The number of pixels, which must fit in an array.
+	 */
+	ArrayHistogram( long size )
+	{
+		if( size > Integer.MAX_VALUE )
+		{
+			throw new IllegalArgumentException( "The histogram is too large to be stored in arrays." );
+		}
+
+		this.hitCount = new int[ ( int )size ];
+		this.colorIndexSum = new double[ ( int )size ];
+	}
+
+	private ArrayHistogram( ArrayHistogram that )
+	{
+		this.hitCount = that.hitCount.clone();
+		this.colorIndexSum = that.colorIndexSum.clone();
+	}
+
+	@Override
+	long size()
+	{
+		return this.hitCount.length;
+	}
+
+	@Override
+	double hitCount( long i )
+	{
+		return this.hitCount[ ( int )i ];
+	}
+
+	@Override
+	double colorIndexSum( long i )
+	{
+		return this.colorIndexSum[ ( int )i ];
+	}
+
+	@Override
+	int hit( long i, double c )
+	{
+		this.colorIndexSum[ ( int )i ] += c;
+
+		return ++this.hitCount[ ( int )i ];
+	}
+
+	@Override
+	int add( long i, int hitCount, double colorIndexSum )
+	{
+		this.colorIndexSum[ ( int )i ] += colorIndexSum;
+
+		return this.hitCount[ ( int )i ] += hitCount;
+	}
+
+	@Override
+	long bytes()
+	{
+		return 12L * this.hitCount.length;
+	}
+
+	@Override
+	Histogram copy()
+	{
+		return new ArrayHistogram( this );
+	}
+
+}
@@ -0,0 +1,398 @@
+package ch.epfl.flamemaker.flame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * An adaptive density estimation filter, which blurs the points that have
+ * been hit rarely, where the image is noisy, and keeps the points that have
+ * been hit often sharp, and which downsamples supersampled accumulators.
+ *
+ * The hits of each pixel are spread over a disc, with weights decreasing
+ * from its center, whose radius is maxRadius / hitCount^curve,
+ * but at least minRadius. Radiuses are given in pixels of the filtered accumulator.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+public final class DensityEstimator
+{
+
+	/**
+	 * An estimator which doesn't blur at all, and thus only downsamples.
+	 */
+	public static final DensityEstimator NONE = new DensityEstimator( 0, 0, 0 );
+
+	public static final double DEFAULT_MAX_RADIUS = 9;
+	public static final double DEFAULT_MIN_RADIUS = 0;
+	public static final double DEFAULT_CURVE = 0.4;
+
+	/**
+	 * The number of kernels per pixel of radius: the radiuses are rounded
+	 * to a multiple of the inverse of this, so that kernels can be computed once.
+	 */
+	private static final int KERNELS_PER_PIXEL = 4;
+
+	/**
+	 * The hit counts below which the kernel of a pixel is looked up in a table.
+	 */
+	private static final int CACHED_HIT_COUNTS = 4096;
+
+	/**
+	 * The number of rows filtered by each task.
+	 */
+	private static final int BAND_HEIGHT = 32;
+
+	private final double maxRadius;
+	private final double minRadius;
+	private final double curve;
+
+	/**
+	 * Create an estimator with the default parameters.
+	 */
+	public DensityEstimator()
+	{
+		this( DEFAULT_MAX_RADIUS, DEFAULT_MIN_RADIUS, DEFAULT_CURVE );
+	}
+
+	/**
+	 * Create an estimator.
+	 *
+	 * @param maxRadius The radius of the kernel of a pixel hit once.
+	 * @param minRadius The minimum radius of a kernel, no greater than maxRadius.
+	 * @param curve How fast the radius decreases as the hit count grows.
+	 */
+	public DensityEstimator( double maxRadius, double minRadius, double curve )
+	{
+		if( minRadius < 0 || maxRadius < minRadius )
+		{
+			throw new IllegalArgumentException( "The radiuses must be such that 0 <= minRadius <= maxRadius." );
+		}
+
+		if( curve < 0 )
+		{
+			throw new IllegalArgumentException( "curve must be positive." );
+		}
+
+		this.maxRadius = maxRadius;
+		this.minRadius = minRadius;
+		this.curve = curve;
+	}
+
+	/**
+	 * Filter a supersampled accumulator, and downsample it.
+	 *
+	 * @param accumulator The accumulator to filter.
+	 * @param supersampling The supersampling factor: the width and height of
+	 * 						the accumulator must be multiples of it.
+	 * @param workers The number of threads to filter the rows on.
+	 * @return A new accumulator, supersampling times narrower and lower.
+	 */
+	public FlameAccumulator apply( FlameAccumulator accumulator, int supersampling, int workers )
+	{
+		if( workers < 1 )
+		{
+			throw new IllegalArgumentException( "workers must be strictly positive." );
+		}
+
+		ExecutorService executor = workers > 1 ? Executors.newFixedThreadPool( workers ) : null;
+
+		try
+		{
+			return this.apply( accumulator, supersampling, executor );
+		}
+		finally
+		{
+			if( executor != null )
+			{
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Filter a supersampled accumulator, and downsample it.
+	 *
+	 * @param executor The executor to filter bands of rows on, or null to filter them on this thread.
+	 * @see #apply( FlameAccumulator, int, int )
+	 */
+	FlameAccumulator apply( final FlameAccumulator accumulator, final int supersampling, ExecutorService executor )
+	{
+		if( supersampling < 1 )
+		{
+			throw new IllegalArgumentException( "supersampling must be strictly positive." );
+		}
+
+		if( accumulator.width() % supersampling != 0 || accumulator.height() % supersampling != 0 )
+		{
+			throw new IllegalArgumentException( "The size of the accumulator must be a multiple of supersampling." );
+		}
+
+		final int width = accumulator.width() / supersampling;
+		final int height = accumulator.height() / supersampling;
+		final DensityHistogram filtered = new DensityHistogram( ( long )width * height );
+		final Kernels kernels = new Kernels( supersampling );
+
+		double maxHitCount = 0;
+
+		if( executor == null )
+		{
+			maxHitCount = this.filter( accumulator, supersampling, kernels, filtered, 0, height );
+		}
+		else
+		{
+			List<Callable<Double>> tasks = new ArrayList<Callable<Double>>();
+
+			for( int first = 0; first < height; first += BAND_HEIGHT )
+			{
+				final int from = first;
+				final int to = Math.min( height, first + BAND_HEIGHT );
+
+				tasks.add( new Callable<Double>()
+				{
+					@Override
+					public Double call()
+					{
+						return DensityEstimator.this.filter( accumulator, supersampling, kernels, filtered, from, to );
+					}
+				} );
+			}
+
+			try
+			{
+				for( Future<Double> result : executor.invokeAll( tasks ) )
+				{
+					maxHitCount = Math.max( maxHitCount, result.get() );
+				}
+			}
+			catch( InterruptedException e )
+			{
+				Thread.currentThread().interrupt();
+
+				throw new IllegalStateException( "The filtering has been interrupted.", e );
+			}
+			catch( ExecutionException e )
+			{
+				throw new IllegalStateException( "A band of rows failed to be filtered.", e.getCause() );
+			}
+		}
+
+		return new FlameAccumulator( width, height, filtered, Math.log( maxHitCount + 1 ) );
+	}
+
+	/**
+	 * Compute the filtered rows between first (included) and last (excluded).
+	 *
+	 * Every source pixel whose kernel reaches these rows spreads its hits over them,
+	 * so that bands can be filtered independently, each one only writing its own rows.
+	 *
+	 * @return The maximum filtered hit count of these rows.
+	 */
+	private double filter( FlameAccumulator accumulator, int supersampling, Kernels kernels, DensityHistogram filtered, int first, int last )
+	{
+		Histogram source = accumulator.histogram();
+		int sourceWidth = accumulator.width();
+		int sourceHeight = accumulator.height();
+		int width = sourceWidth / supersampling;
+
+		// The rows of the band, in source pixels.
+		int top = first * supersampling;
+		int bottom = last * supersampling;
+
+		double[] hitCount = new double[ ( last - first ) * width ];
+		double[] colorIndexSum = new double[ ( last - first ) * width ];
+
+		for( int sy = Math.max( 0, top - kernels.reach ); sy < Math.min( sourceHeight, bottom + kernels.reach ); sy++ )
+		{
+			for( int sx = 0; sx < sourceWidth; sx++ )
+			{
+				long i = ( long )sy * sourceWidth + sx;
+				double hits = source.hitCount( i );
+
+				if( hits == 0 )
+				{
+					continue;
+				}
+
+				double colors = source.colorIndexSum( i );
+				Kernel kernel = kernels.forHitCount( hits );
+				int r = kernel.radius;
+
+				for( int dy = Math.max( -r, top - sy ); dy <= Math.min( r, bottom - 1 - sy ); dy++ )
+				{
+					int row = ( ( sy + dy ) / supersampling - first ) * width;
+					int extent = kernel.extents[ dy + r ];
+					int k = ( dy + r ) * ( 2 * r + 1 ) + r - extent;
+
+					for( int dx = -extent; dx <= extent; dx++, k++ )
+					{
+						int tx = sx + dx;
+						double weight = kernel.weights[ k ];
+
+						if( weight == 0 || tx < 0 || tx >= sourceWidth )
+						{
+							continue;
+						}
+
+						int j = row + tx / supersampling;
+
+						hitCount[ j ] += weight * hits;
+						colorIndexSum[ j ] += weight * colors;
+					}
+				}
+			}
+		}
+
+		double max = 0;
+
+		for( int j = 0; j < hitCount.length; j++ )
+		{
+			filtered.set( first * width + j, hitCount[ j ], colorIndexSum[ j ] );
+
+			// The maximum of the stored values, which are rounded.
+			max = Math.max( max, filtered.hitCount( first * width + j ) );
+		}
+
+		return max;
+	}
+
+	/**
+	 * @param hitCount The hit count of a pixel.
+	 * @param supersampling The supersampling factor.
+	 * @return The radius of the kernel of that pixel, in source pixels.
+	 */
+	private double radius( double hitCount, int supersampling )
+	{
+		return Math.max( this.minRadius, this.maxRadius / Math.pow( hitCount, this.curve ) ) * supersampling;
+	}
+
+	/**
+	 * The kernels of an estimator, for a given supersampling factor.
+	 */
+	private final class Kernels
+	{
+
+		private final int supersampling;
+
+		/**
+		 * The kernels, by radius times {@link #KERNELS_PER_PIXEL}.
+		 */
+		private final Kernel[] kernels;
+
+		/**
+		 * The kernels of the pixels hit less than {@link #CACHED_HIT_COUNTS} times, by hit count.
+		 */
+		private final Kernel[] byHitCount = new Kernel[ CACHED_HIT_COUNTS ];
+
+		/**
+		 * The radius of the largest kernel, in source pixels.
+		 */
+		private final int reach;
+
+		Kernels( int supersampling )
+		{
+			this.supersampling = supersampling;
+			this.kernels = new Kernel[ this.key( DensityEstimator.this.maxRadius * supersampling ) + 1 ];
+
+			for( int key = 0; key < this.kernels.length; key++ )
+			{
+				this.kernels[ key ] = new Kernel( ( double )key / KERNELS_PER_PIXEL );
+			}
+
+			for( int hitCount = 1; hitCount < CACHED_HIT_COUNTS; hitCount++ )
+			{
+				this.byHitCount[ hitCount ] = this.kernels[ this.key( DensityEstimator.this.radius( hitCount, supersampling ) ) ];
+			}
+
+			this.reach = this.kernels[ this.kernels.length - 1 ].radius;
+		}
+
+		/**
+		 * @param hitCount A strictly positive hit count.
+		 * @return The kernel of a pixel hit that many times.
+		 */
+		Kernel forHitCount( double hitCount )
+		{
+			if( hitCount < CACHED_HIT_COUNTS && hitCount == ( int )hitCount )
+			{
+				return this.byHitCount[ ( int )hitCount ];
+			}
+
+			return this.kernels[ this.key( DensityEstimator.this.radius( hitCount, this.supersampling ) ) ];
+		}
+
+		private int key( double radius )
+		{
+			return ( int )Math.round( radius * KERNELS_PER_PIXEL );
+		}
+
+	}
+
+	/**
+	 * An Epanechnikov kernel, whose weights sum to 1.
+	 */
+	private static final class Kernel
+	{
+
+		/**
+		 * The number of pixels the kernel extends over on each side of its center.
+		 */
+		private final int radius;
+
+		/**
+		 * The weights of the ( 2 * radius + 1 )^2 pixels of the kernel, row after row.
+		 */
+		private final double[] weights;
+
+		/**
+		 * The number of pixels with a weight on each side of the center of each row.
+		 */
+		private final int[] extents;
+
+		/**
+		 * @param radius The radius of the kernel, in source pixels.
+		 */
+		Kernel( double radius )
+		{
+			this.radius = ( int )radius;
+			this.weights = new double[ ( 2 * this.radius + 1 ) * ( 2 * this.radius + 1 ) ];
+			this.extents = new int[ 2 * this.radius + 1 ];
+
+			// Less than a pixel wide, the kernel doesn't spread the hits at all.
+			if( this.radius == 0 )
+			{
+				this.weights[ 0 ] = 1;
+
+				return;
+			}
+
+			double sum = 0;
+
+			for( int dy = -this.radius, k = 0; dy <= this.radius; dy++ )
+			{
+				for( int dx = -this.radius; dx <= this.radius; dx++, k++ )
+				{
+					this.weights[ k ] = Math.max( 0, 1 - ( dx * dx + dy * dy ) / ( radius * radius ) );
+					sum += this.weights[ k ];
+
+					if( this.weights[ k ] > 0 )
+					{
+						this.extents[ dy + this.radius ] = Math.max( this.extents[ dy + this.radius ], Math.abs( dx ) );
+					}
+				}
+			}
+
+			for( int k = 0; k < this.weights.length; k++ )
+			{
+				this.weights[ k ] /= sum;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,65 @@
+package ch.epfl.flamemaker.flame;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import ch.epfl.flamemaker.geometry2d.Point;
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+
+public class DensityEstimatorTest
+{
+	private static final Rectangle FRAME = new Rectangle( new Point( -0.25, 0 ), 5, 4 );
+	private static final int WIDTH = 50;
+	private static final int HEIGHT = 40;
+	private static final int DENSITY = 20;
+
+	private static double totalHitCount( FlameAccumulator accumulator )
+	{
+		Histogram histogram = accumulator.histogram();
+		double total = 0;
+
+		for( long i = 0; i < histogram.size(); i++ )
+		{
+			total += histogram.hitCount( i );
+		}
+
+		return total;
+	}
+
+	@Test
+	public void testNoneWithoutSupersamplingKeepsAccumulator()
+	{
+		FlameAccumulator accumulator = FlameComputationTest.sharkfin().compute( FRAME, WIDTH, HEIGHT, DENSITY );
+
+		FlameComputationTest.assertSameAccumulator( accumulator, DensityEstimator.NONE.apply( accumulator, 1, 1 ) );
+	}
+
+	@Test
+	public void testDownsamplingSumsHits()
+	{
+		FlameAccumulator accumulator = FlameComputationTest.sharkfin().compute( FRAME, 4 * WIDTH, 4 * HEIGHT, DENSITY );
+		FlameAccumulator downsampled = DensityEstimator.NONE.apply( accumulator, 4, 1 );
+
+		assertEquals( WIDTH, downsampled.width() );
+		assertEquals( HEIGHT, downsampled.height() );
+		assertEquals( totalHitCount( accumulator ), totalHitCount( downsampled ), 0 );
+	}
+
+	@Test
+	public void testFilterKeepsHitsAndDoesNotDependOnWorkers()
+	{
+		FlameAccumulator accumulator = FlameComputationTest.sharkfin().compute( FRAME, 2 * WIDTH, 2 * HEIGHT, DENSITY );
+		FlameAccumulator filtered = new DensityEstimator( 2, 0.5, 0.4 ).apply( accumulator, 2, 1 );
+
+		// Only the hits spread out of the image are lost.
+		assertEquals( totalHitCount( accumulator ), totalHitCount( filtered ), 0.01 * totalHitCount( accumulator ) );
+		FlameComputationTest.assertSameAccumulator( filtered, new DensityEstimator( 2, 0.5, 0.4 ).apply( accumulator, 2, 3 ) );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testSizeMustBeMultipleOfSupersampling()
+	{
+		DensityEstimator.NONE.apply( FlameComputationTest.sharkfin().compute( FRAME, 51, HEIGHT, DENSITY ), 2, 1 );
+	}
+}
@@ -0,0 +1,104 @@
+package ch.epfl.flamemaker.flame;
+
+/**
+ * A histogram filtered by a {@link DensityEstimator}, whose hit counts are fractional.
+ * It is stored in floats, which are precise enough to colorize it, on the heap.
+ *
+ * Such a histogram cannot be hit anymore.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+final class DensityHistogram extends Histogram
+{
+
+	private final float[] hitCount;
+	private final float[] colorIndexSum;
+
+	/**
+	 * Create an empty histogram, to be filled by {@link #set( int, double, double )}.
+	 *
+	 * @param size The number of pixels, which must fit in an array.
+	 */
+	DensityHistogram( long size )
+	{
+		if( size > Integer.MAX_VALUE )
+		{
+			throw new IllegalArgumentException( "The histogram is too large to be stored in arrays." );
+		}
+
+		this.hitCount = new float[ ( int )size ];
+		this.colorIndexSum = new float[ ( int )size ];
+	}
+
+	private DensityHistogram( DensityHistogram that )
+	{
+		this.hitCount = that.hitCount.clone();
+		this.colorIndexSum = that.colorIndexSum.clone();
+	}
+
+	/**
+	 * Set the values of a pixel.
+	 *
+	 * @param i The index of the pixel.
+	 * @param hitCount The filtered hit count of the pixel.
+	 * @param colorIndexSum The filtered sum of the color indexes of the pixel.
+	 */
+	void set( int i, double hitCount, double colorIndexSum )
+	{
+		this.hitCount[ i ] = ( float )hitCount;
+
+		// Every color index is at most 1, so that must remain true of
+		// their average once rounded, for it to be a valid index.
+		this.colorIndexSum[ i ] = Math.min( ( float )colorIndexSum, this.hitCount[ i ] );
+	}
+
+	@Override
+	long size()
+	{
+		return this.hitCount.length;
+	}
+
+	@Override
+	double hitCount( long i )
+	{
+		return this.hitCount[ ( int )i ];
+	}
+
+	@Override
+	double colorIndexSum( long i )
+	{
+		return this.colorIndexSum[ ( int )i ];
+	}
+
+	/**
+	 * @throws UnsupportedOperationException Always.
+	 */
+	@Override
+	int hit( long i, double c )
+	{
+		throw new UnsupportedOperationException( "A filtered histogram cannot be hit." );
+	}
+
+	/**
+	 * @throws UnsupportedOperationException Always.
+	 */
+	@Override
+	int add( long i, int hitCount, double colorIndexSum )
+	{
+		throw new UnsupportedOperationException( "A filtered histogram cannot be hit." );
+	}
+
+	@Override
+	long bytes()
+	{
+		return 8L * this.hitCount.length;
+	}
+
+	@Override
+	Histogram copy()
+	{
+		return new DensityHistogram( this );
+	}
+
+}
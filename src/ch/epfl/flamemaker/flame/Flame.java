@@ -2,10 +2,8 @@ package ch.epfl.flamemaker.flame;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 import ch.epfl.flamemaker.geometry2d.AffineTransformation;
-import ch.epfl.flamemaker.geometry2d.Point;
 import ch.epfl.flamemaker.geometry2d.Rectangle;
 
 /**
@@ -20,16 +18,41 @@ public class Flame
 
 	private final List<FlameTransformation> transformations;
 	
+	/**
+	 * The transformation applied to the points before they are drawn, or null for none.
+	 */
+	private final AffineTransformation finalTransformation;
+	
 	/**
 	 * Create a new Flame with the given transformations.
 	 * 
 	 * @param transformations The Flame transformations to apply.
 	 */
 	Flame( List<FlameTransformation> transformations )
+	{
+		this( transformations, null );
+	}
+	
+	/**
+	 * Create a new Flame with the given transformations, whose points are transformed
+	 * by the final transformation before they are drawn. The game goes on from the
+	 * points before their final transformation, which thus changes where the fractal
+	 * is drawn, but not its shape.
+	 * 
+	 * @param transformations The Flame transformations to apply.
+	 * @param finalTransformation The final transformation, or null for none.
+	 */
+	Flame( List<FlameTransformation> transformations, AffineTransformation finalTransformation )
 	{
 		this.transformations = new ArrayList<FlameTransformation>( transformations );
+		this.finalTransformation = finalTransformation;
 	}
 
+	/**
+	 * The seed of the random numbers stream used when none is specified.
+	 */
+	public static final long DEFAULT_SEED = 2013;
+
 	/**
 	 * Compute a colored Flame fractal, in the given frame, with the given size, and of the given density.
 	 * 
@@ -43,36 +66,90 @@ public class Flame
 	 */
 	public FlameAccumulator compute( Rectangle frame, int width, int height, int density )
 	{
-		FlameAccumulator.Builder builder = new FlameAccumulator.Builder( frame, width, height );
-
-		Point p = Point.ORIGIN;
-		double c = 0.0;
-		Random random = new Random( 2013 );
+		return this.compute( frame, width, height, density, 1, Flame.DEFAULT_SEED );
+	}
 
-		int n = this.transformations.size();
+	/**
+	 * Compute a colored Flame fractal, splitting the work between the given number of workers.
+	 * 
+	 * @see #compute( Rectangle, int, int, int, int, long )
+	 */
+	public FlameAccumulator compute( Rectangle frame, int width, int height, int density, int workers )
+	{
+		return this.compute( frame, width, height, density, workers, Flame.DEFAULT_SEED );
+	}
 
-		double[] colorIndexes = Flame.colorIndexes( n );
+	/**
+	 * Compute a colored Flame fractal, splitting the work between the given number of workers.
+	 * 
+	 * Each worker draws its share of the points with its own random numbers stream,
+	 * in its own accumulator, and the accumulators are then merged together.
+	 * The result only depends on the seed and the number of workers, not on
+	 * the order in which the workers are scheduled. With a single worker,
+	 * the points are computed on the calling thread.
+	 * 
+	 * @param frame The frame in which the fractal must be contained.
+	 * @param width The width of the fractal.
+	 * @param height The height of the fractal.
+	 * @param density The density of points.
+	 * @param workers The number of workers to split the computation between.
+	 * @param seed The seed of the random numbers streams.
+	 * 
+	 * @return An accumulator, holding the points hit list,
+	 * 		   as well as the points' color indexes.
+	 * 
+	 * @see FlameComputation
+	 */
+	public FlameAccumulator compute( Rectangle frame, int width, int height, int density, int workers, long seed )
+	{
+		FlameComputation computation = new FlameComputation( this, frame, width, height, density );
+		computation.setWorkers( workers );
+		computation.setSeed( seed );
 		
-		// Compute 20 points that we won't draw, to kick the computation off.
-		for( int j = 0; j < 20; j++ )
+		return computation.compute();
+	}
+	
+	/**
+	 * Two flames are equal if they have the same transformations, in the same order,
+	 * and the same final transformation.
+	 * Since a flame cannot be modified, it can be used as a key to cache its renderings.
+	 */
+	@Override
+	public boolean equals( Object other )
+	{
+		if( !( other instanceof Flame ) )
 		{
-			int i = random.nextInt( n );
-			p = this.transformations.get( i ).transformPoint( p );
-			c = ( colorIndexes[ i ] + c ) / 2.0;
+			return false;
 		}
 		
-		int numberOfPoints = density * width * height;
-
-		for( int j = 0; j < numberOfPoints; j++ )
-		{
-			int i = random.nextInt( n );
-			p = this.transformations.get( i ).transformPoint( p );
-			c = ( colorIndexes[ i ] + c ) / 2.0;
-
-			builder.hit( p, c );
-		}
-
-		return builder.build();
+		Flame that = ( Flame )other;
+		
+		return this.transformations.equals( that.transformations )
+			&& ( this.finalTransformation == null
+			   ? that.finalTransformation == null
+			   : this.finalTransformation.equals( that.finalTransformation ) );
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return 31 * this.transformations.hashCode() + ( this.finalTransformation == null ? 0 : this.finalTransformation.hashCode() );
+	}
+	
+	/**
+	 * @return The transformations of this flame, which must not be modified.
+	 */
+	List<FlameTransformation> transformations()
+	{
+		return this.transformations;
+	}
+	
+	/**
+	 * @return The transformation applied to the points before they are drawn, or null for none.
+	 */
+	AffineTransformation finalTransformation()
+	{
+		return this.finalTransformation;
 	}
 	
 	/**
@@ -116,6 +193,7 @@ public class Flame
 	{
 
 		private final List<FlameTransformation.Builder> builders;
+		private AffineTransformation finalTransformation;
 
 		/**
 		 * Create a new builder that will hold the same transformations
@@ -138,6 +216,8 @@ public class Flame
 			{
 				this.builders.add( new FlameTransformation.Builder( transformation ) );
 			}
+			
+			this.finalTransformation = flame.finalTransformation;
 		}
 
 		/**
@@ -225,6 +305,39 @@ public class Flame
 			this.builders.get( index ).setVariationWeight( variation, weight );
 		}
 
+		/**
+		 * Get how often the transformation at the given index is chosen,
+		 * relatively to the others.
+		 * 
+		 * @param index The index of the transformation
+		 * @return The weight of the transformation
+		 */
+		public double weight( int index )
+		{
+			if( index < 0 || index >= this.transformationCount() )
+			{
+				throw new IndexOutOfBoundsException( "Given index is out of bounds." );
+			}
+
+			return this.builders.get( index ).weight();
+		}
+		
+		/**
+		 * Set how often the transformation at the given index is chosen,
+		 * relatively to the others.
+		 * @param index
+		 * @param weight
+		 */
+		public void setWeight( int index, double weight )
+		{
+			if( index < 0 || index >= this.transformationCount() )
+			{
+				throw new IndexOutOfBoundsException( "Given index is out of bounds." );
+			}
+
+			this.builders.get( index ).setWeight( weight );
+		}
+
 		/**
 		 * Remove the transformation at the given index.
 		 * 
@@ -255,7 +368,7 @@ public class Flame
 				transformations.add( builder.build() );
 			}
 			
-			return new Flame( transformations );
+			return new Flame( transformations, this.finalTransformation );
 		}
 
 	}
@@ -1,11 +1,21 @@
 package ch.epfl.flamemaker.flame;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 import ch.epfl.flamemaker.color.Color;
 import ch.epfl.flamemaker.color.Palette;
+import ch.epfl.flamemaker.color.PrecomputedPalette;
 import ch.epfl.flamemaker.geometry2d.AffineTransformation;
+import ch.epfl.flamemaker.geometry2d.MutablePoint;
 import ch.epfl.flamemaker.geometry2d.Point;
 import ch.epfl.flamemaker.geometry2d.Rectangle;
-import ch.epfl.flamemaker.util.Arrays2D;
 
 /**
  * An accumulator holdings a Flame fractal's points hit list
@@ -21,14 +31,22 @@ public final class FlameAccumulator
 {
 	
 	/**
-	 * A 2-dimensional array holding the hit count for each point.
+	 * The first bytes of a saved accumulator, "FLMA" in ASCII.
+	 */
+	private static final int MAGIC = 0x464C4D41;
+	
+	/**
+	 * The version of the format of saved accumulators.
 	 */
-	private final int[][] hitCount;
+	private static final int FORMAT_VERSION = 1;
+	
+	private final int width;
+	private final int height;
 	
 	/**
-	 * A 2-dimensional array holding the color index for each point.
+	 * The hit count and the sum of the color indexes for each point.
 	 */
-	private final double[][] colorIndexSum;
+	private final Histogram histogram;
 	
 	/**
 	 * The intensity denominator.
@@ -36,15 +54,18 @@ public final class FlameAccumulator
 	private final double intensityDenominator;
 
 	/**
-	 * Create a new accumulator.
+	 * Create a new accumulator, which takes ownership of the given histogram.
 	 * 
-	 * @param hitCount
-	 * @param colorIndexSum
+	 * @param width
+	 * @param height
+	 * @param histogram
+	 * @param intensityDenominator The logarithm of the maximum hit count plus one.
 	 */
-	private FlameAccumulator( int[][] hitCount, double[][] colorIndexSum, double intensityDenominator )
+	FlameAccumulator( int width, int height, Histogram histogram, double intensityDenominator )
 	{
-		this.hitCount = Arrays2D.copyOf2DArray( hitCount );
-		this.colorIndexSum = Arrays2D.copyOf2DArray( colorIndexSum );
+		this.width = width;
+		this.height = height;
+		this.histogram = histogram;
 		this.intensityDenominator = intensityDenominator;
 	}
 	
@@ -53,7 +74,7 @@ public final class FlameAccumulator
 	 */
 	public int width()
 	{
-		return this.hitCount.length;
+		return this.width;
 	}
 
 	/**
@@ -61,7 +82,15 @@ public final class FlameAccumulator
 	 */
 	public int height()
 	{
-		return this.hitCount[ 0 ].length;
+		return this.height;
+	}
+	
+	/**
+	 * @return The histogram holding the points hit.
+	 */
+	Histogram histogram()
+	{
+		return this.histogram;
 	}
 	
 	/**
@@ -83,7 +112,7 @@ public final class FlameAccumulator
 			throw new IndexOutOfBoundsException( "y (" + y  + ") is out of bounds." );
 		}
 
-		return Math.log( this.hitCount[ x ][ y ] + 1 ) / this.intensityDenominator;
+		return Math.log( this.histogram.hitCount( ( long )y * this.width + x ) + 1 ) / this.intensityDenominator;
 	}
 	
 	/**
@@ -108,18 +137,274 @@ public final class FlameAccumulator
 			throw new IndexOutOfBoundsException( "y (" + y  + ") is out of bounds." );
 		}
 		
+		long i = ( long )y * this.width + x;
+		double hitCount = this.histogram.hitCount( i );
+		
 		// If the point hasn't been hit, we just return the background color,
 		// for efficiency and to avoid a division by zero in the next step.
-		if( this.hitCount[ x ][ y ] == 0.0 )
+		if( hitCount == 0 )
 		{
 			return background;
 		}
 		
-		double colorIndex = this.colorIndexSum[ x ][ y ] / this.hitCount[ x ][ y ];
+		double colorIndex = this.histogram.colorIndexSum( i ) / hitCount;
+		double intensity = Math.log( hitCount + 1 ) / this.intensityDenominator;
 		
 		// We get the color at the index, and mix it with the background color,
 		// proportionnaly to the point's intensity.
-		return palette.colorForIndex( colorIndex ).mixWith( background, this.intensity( x, y ) );
+		return palette.colorForIndex( colorIndex ).mixWith( background, intensity );
+	}
+	
+	/**
+	 * Compute the components of the color of the point at the given position, like
+	 * {@link #color( Palette, Color, int, int )}, but without any allocation,
+	 * the palette being looked up in its samples.
+	 * 
+	 * @param palette The precomputed color palette to use
+	 * @param background The background color
+	 * @param x The x coordinate of the point.
+	 * @param y The y coordinate of the point.
+	 * @param rgb An array of at least 3 elements, which will hold the red, green
+	 * 			  and blue components of the color, in that order.
+	 */
+	public void components( PrecomputedPalette palette, Color background, int x, int y, double[] rgb )
+	{
+		if( x < 0 || x > this.width() - 1 )
+		{
+			throw new IndexOutOfBoundsException( "x (" + x  + ") is out of bounds." );
+		}
+
+		if( y < 0 || y > this.height() - 1 )
+		{
+			throw new IndexOutOfBoundsException( "y (" + y  + ") is out of bounds." );
+		}
+		
+		long i = ( long )y * this.width + x;
+		double hitCount = this.histogram.hitCount( i );
+		
+		if( hitCount == 0 )
+		{
+			rgb[ 0 ] = background.red();
+			rgb[ 1 ] = background.green();
+			rgb[ 2 ] = background.blue();
+			
+			return;
+		}
+		
+		palette.componentsForIndex( this.histogram.colorIndexSum( i ) / hitCount, rgb );
+		
+		// Mixed with the background as by Color.mixWith, for the results to be the same.
+		double p = Math.log( hitCount + 1 ) / this.intensityDenominator;
+		double c = 1 - p;
+		
+		rgb[ 0 ] = p * rgb[ 0 ] + c * background.red();
+		rgb[ 1 ] = p * rgb[ 1 ] + c * background.green();
+		rgb[ 2 ] = p * rgb[ 2 ] + c * background.blue();
+	}
+	
+	/**
+	 * Add the points hit in another accumulator to the ones of this accumulator,
+	 * for example to merge the parts of a computation split between several machines.
+	 * 
+	 * @param that An accumulator of the same size.
+	 * @return A new accumulator, whose intensities are relative to the maximum hit count of the sum.
+	 * @throws IllegalStateException If either accumulator has been filtered.
+	 */
+	public FlameAccumulator add( FlameAccumulator that )
+	{
+		if( that.width != this.width || that.height != this.height )
+		{
+			throw new IllegalArgumentException( "Both accumulators must have the same size." );
+		}
+		
+		this.checkNotFiltered();
+		that.checkNotFiltered();
+		
+		Histogram sum = this.histogram.copy();
+		int maxHitCount = 0;
+		
+		for( long i = 0; i < sum.size(); i++ )
+		{
+			// The hit counts of an accumulator which hasn't been filtered are integers.
+			int count = sum.add( i, ( int )that.histogram.hitCount( i ), that.histogram.colorIndexSum( i ) );
+			
+			maxHitCount = Math.max( maxHitCount, count );
+		}
+		
+		return new FlameAccumulator( this.width, this.height, sum, Math.log( maxHitCount + 1 ) );
+	}
+	
+	/**
+	 * Save the points hit in this accumulator to the given stream, which is left open.
+	 * 
+	 * The format starts with "FLMA", the version of the format, the width and the height,
+	 * as 32 bits big-endian integers. Then comes, for each point, row after row, its hit count
+	 * as an unsigned variable-length integer, 7 bits per byte, least significant bits first,
+	 * followed, if it isn't zero, by the sum of its color indexes as a big-endian double.
+	 * 
+	 * @param output The stream to write to.
+	 * @throws IOException
+	 * @throws IllegalStateException If this accumulator has been filtered.
+	 */
+	public void writeTo( OutputStream output ) throws IOException
+	{
+		this.checkNotFiltered();
+		
+		DataOutputStream data = new DataOutputStream( new BufferedOutputStream( output ) );
+		
+		data.writeInt( MAGIC );
+		data.writeInt( FORMAT_VERSION );
+		data.writeInt( this.width );
+		data.writeInt( this.height );
+		FlameAccumulator.writeHistogram( data, this.histogram );
+		data.flush();
+	}
+	
+	/**
+	 * Load an accumulator saved by {@link #writeTo( OutputStream )}, on the heap.
+	 * The stream, which is left open, may be read past the end of the accumulator.
+	 * 
+	 * @param input The stream to read from.
+	 * @return The accumulator.
+	 * @throws IOException If the stream cannot be read, or doesn't hold an accumulator.
+	 */
+	public static FlameAccumulator readFrom( InputStream input ) throws IOException
+	{
+		return FlameAccumulator.readFrom( input, null, false );
+	}
+	
+	/**
+	 * Load an accumulator saved by {@link #writeTo( OutputStream )}, in a temporary
+	 * file mapped in memory, like the ones of {@link Builder#Builder( Rectangle, int, int, File )}.
+	 * The stream, which is left open, may be read past the end of the accumulator.
+	 * 
+	 * @param input The stream to read from.
+	 * @param directory The directory in which to create the file,
+	 * 					or null for the default temporary directory.
+	 * @return The accumulator.
+	 * @throws IOException If the stream cannot be read, or doesn't hold an accumulator.
+	 */
+	public static FlameAccumulator readFrom( InputStream input, File directory ) throws IOException
+	{
+		return FlameAccumulator.readFrom( input, directory, true );
+	}
+	
+	private static FlameAccumulator readFrom( InputStream input, File directory, boolean mapped ) throws IOException
+	{
+		DataInputStream data = new DataInputStream( new BufferedInputStream( input ) );
+		
+		if( data.readInt() != MAGIC )
+		{
+			throw new IOException( "The stream doesn't hold an accumulator." );
+		}
+		
+		int version = data.readInt();
+		
+		if( version != FORMAT_VERSION )
+		{
+			throw new IOException( "Unsupported accumulator format version: " + version + "." );
+		}
+		
+		int width = data.readInt();
+		int height = data.readInt();
+		
+		if( width < 1 || height < 1 )
+		{
+			throw new IOException( "Invalid accumulator size: " + width + "x" + height + "." );
+		}
+		
+		long size = ( long )width * height;
+		Histogram histogram = mapped ? new MappedHistogram( directory, size ) : new ArrayHistogram( size );
+		int maxHitCount = FlameAccumulator.readHistogram( data, histogram );
+		
+		return new FlameAccumulator( width, height, histogram, Math.log( maxHitCount + 1 ) );
+	}
+	
+	/**
+	 * Write the hit counts and color index sums of a histogram which hasn't been filtered,
+	 * in the format described in {@link #writeTo( OutputStream )}.
+	 */
+	private static void writeHistogram( DataOutputStream data, Histogram histogram ) throws IOException
+	{
+		for( long i = 0; i < histogram.size(); i++ )
+		{
+			int hitCount = ( int )histogram.hitCount( i );
+			
+			FlameAccumulator.writeVariableLength( data, hitCount );
+			
+			if( hitCount > 0 )
+			{
+				data.writeDouble( histogram.colorIndexSum( i ) );
+			}
+		}
+	}
+	
+	/**
+	 * Add the hits written by {@link #writeHistogram( DataOutputStream, Histogram )} to a histogram of the same size.
+	 * 
+	 * @return The maximum hit count read.
+	 */
+	private static int readHistogram( DataInputStream data, Histogram histogram ) throws IOException
+	{
+		int maxHitCount = 0;
+		
+		for( long i = 0; i < histogram.size(); i++ )
+		{
+			int hitCount = FlameAccumulator.readVariableLength( data );
+			
+			if( hitCount > 0 )
+			{
+				histogram.add( i, hitCount, data.readDouble() );
+				maxHitCount = Math.max( maxHitCount, hitCount );
+			}
+		}
+		
+		return maxHitCount;
+	}
+	
+	private static void writeVariableLength( DataOutputStream data, int value ) throws IOException
+	{
+		while( ( value & ~0x7F ) != 0 )
+		{
+			data.writeByte( ( value & 0x7F ) | 0x80 );
+			value >>>= 7;
+		}
+		
+		data.writeByte( value );
+	}
+	
+	private static int readVariableLength( DataInputStream data ) throws IOException
+	{
+		int value = 0;
+		
+		for( int shift = 0; shift < 32; shift += 7 )
+		{
+			int b = data.readUnsignedByte();
+			value |= ( b & 0x7F ) << shift;
+			
+			if( ( b & 0x80 ) == 0 )
+			{
+				if( value < 0 )
+				{
+					throw new IOException( "Invalid hit count." );
+				}
+				
+				return value;
+			}
+		}
+		
+		throw new IOException( "Invalid hit count." );
+	}
+	
+	/**
+	 * @throws IllegalStateException If this accumulator has been filtered.
+	 */
+	private void checkNotFiltered()
+	{
+		if( this.histogram instanceof DensityHistogram )
+		{
+			throw new IllegalStateException( "A filtered accumulator cannot be added nor saved." );
+		}
 	}
 	
 	/**
@@ -130,29 +415,52 @@ public final class FlameAccumulator
 		private Rectangle frame;
 		private int width;
 		private int height;
-		private int[][] hitCount;
-		private double[][] colorIndexSum;
+		private Histogram histogram;
 		private AffineTransformation transformation;
 		
+		/**
+		 * Holds the pixel coordinates of the point being hit.
+		 */
+		private final MutablePoint pixel = new MutablePoint( 0, 0 );
+		
 		private int maxHitCount = 0;
 
+		/**
+		 * Create a new builder, whose histogram is stored on the heap.
+		 * 
+		 * @param frame The frame in which the points are hit.
+		 * @param width The width of the accumulator.
+		 * @param height The height of the accumulator.
+		 */
 		public Builder( Rectangle frame, int width, int height )
 		{
-			if( width < 1 )
-			{
-				throw new IllegalArgumentException( "width should be strictly positive." );
-			}
-
-			if( height < 1 )
-			{
-				throw new IllegalArgumentException( "height should be strictly positive." );
-			}
-
+			this( frame, width, height, new ArrayHistogram( Builder.size( width, height ) ) );
+		}
+		
+		/**
+		 * Create a new builder, whose histogram is stored in a temporary file mapped
+		 * in memory, so that accumulators larger than the heap can be built.
+		 * The file is deleted once it isn't needed anymore, and so are the files
+		 * of the copies of this builder, which are created in the same directory.
+		 * 
+		 * @param frame The frame in which the points are hit.
+		 * @param width The width of the accumulator.
+		 * @param height The height of the accumulator.
+		 * @param directory The directory in which to create the file,
+		 * 					or null for the default temporary directory.
+		 * @throws IOException If the file cannot be created or mapped.
+		 */
+		public Builder( Rectangle frame, int width, int height, File directory ) throws IOException
+		{
+			this( frame, width, height, new MappedHistogram( directory, Builder.size( width, height ) ) );
+		}
+		
+		private Builder( Rectangle frame, int width, int height, Histogram histogram )
+		{
 			this.frame = frame;
 			this.width = width;
 			this.height = height;
-			this.hitCount = new int[ width ][ height ];
-			this.colorIndexSum = new double[ width ][ height ];
+			this.histogram = histogram;
 			
 			// Since hit points are contained in a frame whose origin is is not necessarily at ( 0, 0 ),
 			// and which might now be as wide or high as the output image,
@@ -165,43 +473,184 @@ public final class FlameAccumulator
 			this.transformation = scaling.composeWith( translation );
 		}
 		
+		/**
+		 * Create a new builder holding a copy of the points hit in the given one.
+		 * 
+		 * @param that The builder to copy.
+		 */
+		public Builder( Builder that )
+		{
+			that.checkNotBuilt();
+			
+			this.frame = that.frame;
+			this.width = that.width;
+			this.height = that.height;
+			this.histogram = that.histogram.copy();
+			this.transformation = that.transformation;
+			this.maxHitCount = that.maxHitCount;
+		}
+		
+		/**
+		 * @param width The width of the accumulator.
+		 * @param height The height of the accumulator.
+		 * @return The number of pixels of the accumulator.
+		 */
+		private static long size( int width, int height )
+		{
+			if( width < 1 )
+			{
+				throw new IllegalArgumentException( "width should be strictly positive." );
+			}
+
+			if( height < 1 )
+			{
+				throw new IllegalArgumentException( "height should be strictly positive." );
+			}
+			
+			return ( long )width * height;
+		}
+		
 		/**
 		 * Hit the point p, with the given color index.
 		 *
 		 * @param p The point to hit.
 		 * @param c The color index of that point.
+		 * @return Whether the point is in the frame, and has thus been drawn.
 		 */
-		public void hit( Point p, double c )
+		public boolean hit( Point p, double c )
 		{
-			if( !this.frame.contains( p ) )
+			return this.hit( p.x(), p.y(), c );
+		}
+		
+		/**
+		 * Hit the point at the given coordinates, with the given color index.
+		 *
+		 * @param x The x coordinate of the point to hit.
+		 * @param y The y coordinate of the point to hit.
+		 * @param c The color index of that point.
+		 * @return Whether the point is in the frame, and has thus been drawn.
+		 */
+		public boolean hit( double x, double y, double c )
+		{
+			this.checkNotBuilt();
+			
+			if( !this.frame.contains( x, y ) )
 			{
-				return;
+				return false;
 			}
 			
 			// See the comment in {@link #Builder( Rectangle, int, int )} for a detailed
 			// explanation of why we need to transform that point.
-			p = this.transformation.transformPoint( p );
+			this.pixel.set( x, y );
+			this.transformation.transformInPlace( this.pixel );
 
-			int x = ( int )Math.floor( p.x() );
-			int y = ( int )Math.floor( p.y() );
-
-			this.hitCount[ x ][ y ] += 1;
-			this.colorIndexSum[ x ][ y ] += c;
+			// A point just inside the right or top edge of the frame can be rounded
+			// onto the next pixel, which is out of the image: keep it on the edge.
+			int px = Math.max( 0, Math.min( this.width - 1, ( int )Math.floor( this.pixel.x() ) ) );
+			int py = Math.max( 0, Math.min( this.height - 1, ( int )Math.floor( this.pixel.y() ) ) );
+			int count = this.histogram.hit( ( long )py * this.width + px, c );
 			
-			if( this.hitCount[ x ][ y ] > this.maxHitCount )
+			if( count > this.maxHitCount )
 			{
-				this.maxHitCount = this.hitCount[ x ][ y ];
+				this.maxHitCount = count;
 			}
+			
+			return true;
+		}
+		
+		/**
+		 * Add the points hit in another builder to this one.
+		 * Both builders must have the same size.
+		 *
+		 * @param that The builder whose points to add to this one.
+		 */
+		public void add( Builder that )
+		{
+			this.checkNotBuilt();
+			that.checkNotBuilt();
+			
+			if( that.width != this.width || that.height != this.height )
+			{
+				throw new IllegalArgumentException( "Both builders must have the same size." );
+			}
+
+			for( long i = 0; i < this.histogram.size(); i++ )
+			{
+				// The hit counts of a builder are always integers.
+				int count = this.histogram.add( i, ( int )that.histogram.hitCount( i ), that.histogram.colorIndexSum( i ) );
+
+				if( count > this.maxHitCount )
+				{
+					this.maxHitCount = count;
+				}
+			}
+		}
+
+		/**
+		 * @return The number of bytes the histogram of this builder takes.
+		 */
+		long bytes()
+		{
+			this.checkNotBuilt();
+			
+			return this.histogram.bytes();
+		}
+
+		/**
+		 * Save the points hit so far, to be restored by {@link #readState( DataInputStream )}.
+		 * 
+		 * @param data The stream to write to.
+		 * @throws IOException
+		 */
+		void writeState( DataOutputStream data ) throws IOException
+		{
+			this.checkNotBuilt();
+			
+			FlameAccumulator.writeHistogram( data, this.histogram );
+		}
+		
+		/**
+		 * Restore the points hit saved by {@link #writeState( DataOutputStream )}
+		 * into this builder, which must be empty and of the same size.
+		 * 
+		 * @param data The stream to read from.
+		 * @throws IOException
+		 */
+		void readState( DataInputStream data ) throws IOException
+		{
+			this.checkNotBuilt();
+			
+			this.maxHitCount = FlameAccumulator.readHistogram( data, this.histogram );
 		}
 		
 		/**
 		 * Build the Flame accumulator.
+		 * 
+		 * To avoid duplicating the histogram, the accumulator takes ownership
+		 * of this builder's histogram, and the builder cannot be used anymore afterwards.
+		 * 
+		 * @throws IllegalStateException if the accumulator has already been built.
 		 */
 		public FlameAccumulator build()
 		{
-			FlameAccumulator acc = new FlameAccumulator( this.hitCount, this.colorIndexSum, Math.log( this.maxHitCount + 1 ) );
+			this.checkNotBuilt();
+			
+			FlameAccumulator acc = new FlameAccumulator( this.width, this.height, this.histogram, Math.log( this.maxHitCount + 1 ) );
+			
+			this.histogram = null;
 			
 			return acc;
 		}
+		
+		/**
+		 * @throws IllegalStateException if the accumulator has already been built.
+		 */
+		private void checkNotBuilt()
+		{
+			if( this.histogram == null )
+			{
+				throw new IllegalStateException( "The accumulator has already been built." );
+			}
+		}
 	}
 }
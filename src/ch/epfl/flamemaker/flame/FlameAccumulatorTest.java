@@ -0,0 +1,204 @@
+package ch.epfl.flamemaker.flame;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.InterpolatedPalette;
+import ch.epfl.flamemaker.color.PrecomputedPalette;
+import ch.epfl.flamemaker.geometry2d.Point;
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+
+public class FlameAccumulatorTest
+{
+	private static final Rectangle FRAME = new Rectangle( new Point( -0.25, 0 ), 5, 4 );
+	private static final int WIDTH = 50;
+	private static final int HEIGHT = 40;
+	private static final int DENSITY = 20;
+	private static final int PARTS = 3;
+
+	/**
+	 * Compute one part of the fractal, and save it, in a separate process.
+	 *
+	 * @param args The index of the part, and the file to save it to.
+	 */
+	public static void main( String[] args ) throws IOException
+	{
+		FlameComputation computation = new FlameComputation( FlameComputationTest.sharkfin(), FRAME, WIDTH, HEIGHT, DENSITY );
+		computation.setPartition( Integer.parseInt( args[ 0 ] ), PARTS );
+
+		OutputStream output = new FileOutputStream( args[ 1 ] );
+
+		try
+		{
+			computation.compute().writeTo( output );
+		}
+		finally
+		{
+			output.close();
+		}
+	}
+
+	@Test
+	public void testPointsOnEdgesStayInImage()
+	{
+		FlameAccumulator.Builder builder = new FlameAccumulator.Builder( FRAME, WIDTH, HEIGHT );
+
+		assertTrue( builder.hit( Math.nextDown( FRAME.right() ), 0, 0 ) );
+		assertTrue( builder.hit( 0, Math.nextDown( FRAME.top() ), 0 ) );
+		assertTrue( builder.hit( Math.nextDown( FRAME.right() ), Math.nextDown( FRAME.top() ), 0 ) );
+		assertTrue( builder.hit( FRAME.left(), FRAME.bottom(), 0 ) );
+		assertFalse( builder.hit( FRAME.right(), 0, 0 ) );
+		assertFalse( builder.hit( 0, FRAME.top(), 0 ) );
+
+		FlameAccumulator accumulator = builder.build();
+		int hit = 0;
+
+		for( int y = 0; y < HEIGHT; y++ )
+		{
+			for( int x = 0; x < WIDTH; x++ )
+			{
+				if( accumulator.intensity( x, y ) > 0 )
+				{
+					hit++;
+				}
+			}
+		}
+
+		assertEquals( 4, hit );
+		assertTrue( accumulator.intensity( WIDTH - 1, HEIGHT / 2 ) > 0 );
+		// x = 0 is 2.75 units from the left of the frame, that is 27.5 pixels.
+		assertTrue( accumulator.intensity( 27, HEIGHT - 1 ) > 0 );
+		assertTrue( accumulator.intensity( WIDTH - 1, HEIGHT - 1 ) > 0 );
+		assertTrue( accumulator.intensity( 0, 0 ) > 0 );
+	}
+
+	private static void assertSameColors( FlameAccumulator expected, FlameAccumulator actual )
+	{
+		FlameComputationTest.assertSameAccumulator( expected, actual );
+
+		for( int y = 0; y < expected.height(); y++ )
+		{
+			for( int x = 0; x < expected.width(); x++ )
+			{
+				assertEquals( expected.color( InterpolatedPalette.RGB_PALETTE, Color.BLACK, x, y ), actual.color( InterpolatedPalette.RGB_PALETTE, Color.BLACK, x, y ) );
+			}
+		}
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException
+	{
+		FlameAccumulator accumulator = FlameComputationTest.sharkfin().compute( FRAME, WIDTH, HEIGHT, DENSITY );
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		accumulator.writeTo( output );
+
+		assertSameColors( accumulator, FlameAccumulator.readFrom( new ByteArrayInputStream( output.toByteArray() ) ) );
+		assertSameColors( accumulator, FlameAccumulator.readFrom( new ByteArrayInputStream( output.toByteArray() ), null ) );
+	}
+
+	@Test( expected = IOException.class )
+	public void testLoadInvalidStream() throws IOException
+	{
+		FlameAccumulator.readFrom( new ByteArrayInputStream( new byte[] { 'P', '6', '\n', 0, 0, 0, 0, 0 } ) );
+	}
+
+	@Test
+	public void testPartsAddUpToWholeComputation()
+	{
+		FlameAccumulator sum = null;
+
+		for( int i = 0; i < PARTS; i++ )
+		{
+			FlameComputation computation = new FlameComputation( FlameComputationTest.sharkfin(), FRAME, WIDTH, HEIGHT, DENSITY );
+			computation.setPartition( i, PARTS );
+
+			sum = sum == null ? computation.compute() : sum.add( computation.compute() );
+		}
+
+		assertSameColors( FlameComputationTest.sharkfin().compute( FRAME, WIDTH, HEIGHT, DENSITY, PARTS, Flame.DEFAULT_SEED ), sum );
+	}
+
+	@Test
+	public void testPartsComputedInOtherProcessesAddUpToWholeComputation() throws IOException, InterruptedException
+	{
+		String java = System.getProperty( "java.home" ) + File.separator + "bin" + File.separator + "java";
+		List<Process> processes = new ArrayList<Process>();
+		List<File> files = new ArrayList<File>();
+
+		for( int i = 0; i < PARTS; i++ )
+		{
+			File file = File.createTempFile( "flame-part", ".accumulator" );
+			file.deleteOnExit();
+			files.add( file );
+
+			processes.add( new ProcessBuilder(
+				java, "-cp", System.getProperty( "java.class.path" ),
+				FlameAccumulatorTest.class.getName(), Integer.toString( i ), file.getPath()
+			).redirectErrorStream( true ).start() );
+		}
+
+		FlameAccumulator sum = null;
+
+		for( int i = 0; i < PARTS; i++ )
+		{
+			assertEquals( 0, processes.get( i ).waitFor() );
+
+			InputStream input = new FileInputStream( files.get( i ) );
+
+			try
+			{
+				FlameAccumulator part = FlameAccumulator.readFrom( input );
+				sum = sum == null ? part : sum.add( part );
+			}
+			finally
+			{
+				input.close();
+				files.get( i ).delete();
+			}
+		}
+
+		assertSameColors( FlameComputationTest.sharkfin().compute( FRAME, WIDTH, HEIGHT, DENSITY, PARTS, Flame.DEFAULT_SEED ), sum );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testAddDifferentSizes()
+	{
+		FlameAccumulator a = FlameComputationTest.sharkfin().compute( FRAME, WIDTH, HEIGHT, DENSITY );
+		FlameAccumulator b = FlameComputationTest.sharkfin().compute( FRAME, WIDTH + 1, HEIGHT, DENSITY );
+
+		a.add( b );
+	}
+
+	@Test
+	public void testComponentsEqualColor()
+	{
+		FlameAccumulator accumulator = FlameComputationTest.sharkfin().compute( FRAME, WIDTH, HEIGHT, DENSITY );
+		PrecomputedPalette palette = new PrecomputedPalette( InterpolatedPalette.RGB_PALETTE );
+		Color background = new Color( 0.1, 0.2, 0.3 );
+		double[] rgb = new double[ 3 ];
+
+		for( int y = 0; y < HEIGHT; y++ )
+		{
+			for( int x = 0; x < WIDTH; x++ )
+			{
+				accumulator.components( palette, background, x, y, rgb );
+
+				assertEquals( accumulator.color( palette, background, x, y ), new Color( rgb[ 0 ], rgb[ 1 ], rgb[ 2 ] ) );
+			}
+		}
+	}
+}
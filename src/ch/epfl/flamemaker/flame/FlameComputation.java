@@ -0,0 +1,1013 @@
+package ch.epfl.flamemaker.flame;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ch.epfl.flamemaker.geometry2d.AffineTransformation;
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+import ch.epfl.flamemaker.util.RandomStreams;
+
+/**
+ * The computation of a Flame fractal, in a given frame, of a given size and density.
+ *
+ * The points can be split between several workers, and drawn in passes of
+ * increasing size, a snapshot of the accumulator being published
+ * to a {@link Listener} after each pass. The final result only depends on the seed
+ * and the number of workers, not on the number of passes.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+public class FlameComputation
+{
+
+	/**
+	 * Get notified of the progress of a computation.
+	 */
+	public interface Listener
+	{
+
+		/**
+		 * Called after each pass, on the thread running the computation.
+		 *
+		 * @param accumulator The points drawn so far. After the last pass,
+		 * 					  this is the result of the computation.
+		 * @param iterations The number of points drawn so far.
+		 * @param totalIterations The number of points to draw in total,
+		 * 						   only counting the part computed if partitioned.
+		 */
+		void passCompleted( FlameAccumulator accumulator, long iterations, long totalIterations );
+
+	}
+
+	/**
+	 * The density of the first pass, an eighth of a point per pixel,
+	 * which is enough to get a coarse image almost immediately.
+	 * Every following pass draws as many points as all the previous ones.
+	 */
+	private static final double FIRST_PASS_DENSITY = 1.0 / 8.0;
+
+	/**
+	 * The first bytes of a checkpoint, "FLMK" in ASCII, and the version of its format.
+	 */
+	private static final int CHECKPOINT_MAGIC = 0x464C4D4B;
+	private static final int CHECKPOINT_VERSION = 2;
+
+	private final List<FlameTransformation> transformations;
+	private final AffineTransformation finalTransformation;
+	private final Rectangle frame;
+	private final int width;
+	private final int height;
+	private final int density;
+
+	private int workers = 1;
+	private long seed = Flame.DEFAULT_SEED;
+	private RandomStreams randomStreams = RandomStreams.JAVA_UTIL;
+	private long timeBudget = 0;
+	private double convergenceThreshold = 0;
+	private Listener listener;
+	private File histogramDirectory;
+	private boolean mapped = false;
+	private File checkpoint;
+	private long checkpointInterval;
+	private int supersampling = 1;
+	private int partition = 0;
+	private int partitions = 0;
+	private DensityEstimator densityEstimator;
+	private RenderMetrics metrics;
+
+	/**
+	 * The number of bytes of the histograms of the workers, while collecting metrics.
+	 */
+	private long histogramBytes;
+
+	/**
+	 * The time, as given by {@link System#nanoTime()}, at which the computation must stop.
+	 */
+	private long deadline;
+
+	/**
+	 * The time, as given by {@link System#nanoTime()}, at which to save the next checkpoint.
+	 */
+	private long nextCheckpoint;
+
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Create a new computation of the given flame.
+	 *
+	 * @param flame The flame to compute.
+	 * @param frame The frame in which the fractal must be contained.
+	 * @param width The width of the fractal.
+	 * @param height The height of the fractal.
+	 * @param density The density of points.
+	 */
+	public FlameComputation( Flame flame, Rectangle frame, int width, int height, int density )
+	{
+		if( density < 0 )
+		{
+			throw new IllegalArgumentException( "density must be positive." );
+		}
+
+		this.transformations = flame.transformations();
+		this.finalTransformation = flame.finalTransformation();
+		this.frame = frame;
+		this.width = width;
+		this.height = height;
+		this.density = density;
+	}
+
+	/**
+	 * Set the number of workers to split the computation between.
+	 * With a single worker, the points are computed on the calling thread.
+	 *
+	 * @param workers A strictly positive number of workers.
+	 */
+	public void setWorkers( int workers )
+	{
+		if( workers < 1 )
+		{
+			throw new IllegalArgumentException( "workers must be strictly positive." );
+		}
+
+		this.workers = workers;
+	}
+
+	/**
+	 * Set the seed of the random numbers streams.
+	 *
+	 * @param seed
+	 */
+	public void setSeed( long seed )
+	{
+		this.seed = seed;
+	}
+
+	/**
+	 * Set the family of random numbers streams the workers draw their points with.
+	 * The default one, {@link RandomStreams#JAVA_UTIL}, is the slowest, but gives
+	 * the same fractals as before streams could be chosen.
+	 *
+	 * A computation resumed from a checkpoint goes on with the streams it has been saved with.
+	 *
+	 * @param randomStreams The family of streams.
+	 */
+	public void setRandomStreams( RandomStreams randomStreams )
+	{
+		if( randomStreams == null )
+		{
+			throw new IllegalArgumentException( "randomStreams must not be null." );
+		}
+
+		this.randomStreams = randomStreams;
+	}
+
+	/**
+	 * Set the maximum time the computation may take, after which it stops
+	 * with the points drawn so far, even if the density hasn't been reached.
+	 * To draw as many points as possible in that time, set a density high enough
+	 * not to be reached.
+	 *
+	 * @param milliseconds The time budget in milliseconds, or 0 for none.
+	 */
+	public void setTimeBudget( long milliseconds )
+	{
+		if( milliseconds < 0 )
+		{
+			throw new IllegalArgumentException( "The time budget must be positive." );
+		}
+
+		this.timeBudget = milliseconds;
+	}
+
+	/**
+	 * Stop the computation once the image doesn't change much anymore, even if
+	 * the density hasn't been reached. The points are then drawn in passes,
+	 * each one drawing as many points as all the previous ones, and the computation
+	 * stops as soon as the mean change of the intensities of the points hit,
+	 * between a pass and the previous one, is below the given threshold.
+	 *
+	 * The density then acts as an upper bound, as it does with a time budget.
+	 *
+	 * @param threshold The mean change of intensity, between 0 and 1, or 0 to always reach the density.
+	 */
+	public void setConvergenceThreshold( double threshold )
+	{
+		if( threshold < 0 || threshold > 1 )
+		{
+			throw new IllegalArgumentException( "threshold must be between 0 and 1." );
+		}
+
+		this.convergenceThreshold = threshold;
+	}
+
+	/**
+	 * Set the listener to notify after each pass.
+	 * Without a listener nor a convergence threshold, all the points are drawn in a single pass.
+	 *
+	 * @param listener A listener, or null for none.
+	 */
+	public void setListener( Listener listener )
+	{
+		this.listener = listener;
+	}
+
+	/**
+	 * Only compute one part of the fractal: the points the given worker would draw
+	 * if the computation was split between the given number of workers.
+	 *
+	 * This allows a computation to be split between several processes or machines,
+	 * each one computing a different part, with the same parameters otherwise.
+	 * Adding the accumulators of all the parts, in order, with
+	 * {@link FlameAccumulator#add( FlameAccumulator )} gives the same accumulator as
+	 * computing the fractal at once with that many workers. The parts must not be
+	 * filtered nor supersampled before being added.
+	 *
+	 * The part is computed by a single worker, on the calling thread,
+	 * whatever the number of workers.
+	 *
+	 * @param index The index of the part to compute, between 0 and count - 1.
+	 * @param count The number of parts.
+	 */
+	public void setPartition( int index, int count )
+	{
+		if( count < 1 )
+		{
+			throw new IllegalArgumentException( "count must be strictly positive." );
+		}
+
+		if( index < 0 || index >= count )
+		{
+			throw new IndexOutOfBoundsException( "index (" + index + ") is out of bounds." );
+		}
+
+		this.partition = index;
+		this.partitions = count;
+	}
+
+	/**
+	 * Set the supersampling factor: the points are drawn in an accumulator
+	 * that many times wider and higher, which is then downsampled to the requested
+	 * size, so that the edges of the fractal are smoother.
+	 *
+	 * @param supersampling A strictly positive factor, 1 for no supersampling.
+	 */
+	public void setSupersampling( int supersampling )
+	{
+		if( supersampling < 1 )
+		{
+			throw new IllegalArgumentException( "supersampling must be strictly positive." );
+		}
+
+		this.supersampling = supersampling;
+	}
+
+	/**
+	 * Set the density estimation filter applied to the accumulator before
+	 * it is downsampled, after each pass.
+	 *
+	 * @param densityEstimator An estimator, or null for none.
+	 */
+	public void setDensityEstimator( DensityEstimator densityEstimator )
+	{
+		this.densityEstimator = densityEstimator;
+	}
+
+	/**
+	 * Store the histograms of the workers in temporary files mapped in memory,
+	 * instead of on the heap, so that fractals larger than the heap can be computed.
+	 *
+	 * @param directory The directory in which to create the files,
+	 * 					or null for the default temporary directory.
+	 * @see FlameAccumulator.Builder#Builder( Rectangle, int, int, File )
+	 */
+	public void setMappedHistograms( File directory )
+	{
+		this.mapped = true;
+		this.histogramDirectory = directory;
+	}
+
+	/**
+	 * Periodically save the state of the computation to the given file, so that it
+	 * can be resumed with {@link #resume( File )} if it is interrupted. The state is
+	 * also saved if the computation is cancelled or runs out of time, and the file
+	 * is deleted once the computation is complete.
+	 *
+	 * @param file The file to save the checkpoints to, or null for no checkpoints.
+	 * @param milliseconds The time between two checkpoints.
+	 */
+	public void setCheckpoint( File file, long milliseconds )
+	{
+		if( milliseconds <= 0 )
+		{
+			throw new IllegalArgumentException( "The time between two checkpoints must be strictly positive." );
+		}
+
+		this.checkpoint = file;
+		this.checkpointInterval = milliseconds;
+	}
+
+	/**
+	 * Collect the metrics of the computation into the given ones:
+	 * the points computed, in the frame, and escaped, how often each transformation
+	 * is chosen, the time spent drawing, merging, filtering and saving checkpoints,
+	 * and the memory taken by the histograms.
+	 *
+	 * @param metrics The metrics to add to, or null not to collect any.
+	 */
+	public void setMetrics( RenderMetrics metrics )
+	{
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Ask the computation to stop as soon as possible, with the points drawn so far.
+	 * Can be called from any thread.
+	 */
+	public void cancel()
+	{
+		this.cancelled = true;
+	}
+
+	/**
+	 * @return Whether the computation has been cancelled.
+	 */
+	public boolean isCancelled()
+	{
+		return this.cancelled;
+	}
+
+	/**
+	 * @return Whether the workers must stop drawing points,
+	 * 		   either for good, or to save a checkpoint.
+	 */
+	boolean isStopped()
+	{
+		return this.isOver() || this.isCheckpointDue();
+	}
+
+	/**
+	 * @return Whether the computation has been cancelled, or has run out of time.
+	 */
+	private boolean isOver()
+	{
+		return this.cancelled || this.timeBudget > 0 && System.nanoTime() - this.deadline > 0;
+	}
+
+	/**
+	 * @return Whether it is time to save a checkpoint.
+	 */
+	private boolean isCheckpointDue()
+	{
+		return this.checkpoint != null && System.nanoTime() - this.nextCheckpoint > 0;
+	}
+
+	/**
+	 * Compute the fractal.
+	 *
+	 * @return An accumulator, holding the points hit list,
+	 * 		   as well as the points' color indexes.
+	 */
+	public FlameAccumulator compute()
+	{
+		return this.run( this.createWorkers( this.workerCount() ) );
+	}
+
+	/**
+	 * Resume the computation from a checkpoint saved by a computation of the same
+	 * fractal, with the same parameters, and compute the rest of the fractal.
+	 * The result is the same as if the computation hadn't been interrupted.
+	 *
+	 * @param checkpoint The file the checkpoint has been saved to.
+	 * @return An accumulator, holding the points hit list,
+	 * 		   as well as the points' color indexes.
+	 * @throws IOException If the checkpoint cannot be read,
+	 * 					   or has been saved by a different computation.
+	 * @see #setCheckpoint( File, long )
+	 */
+	public FlameAccumulator resume( File checkpoint ) throws IOException
+	{
+		return this.run( this.readCheckpoint( checkpoint ) );
+	}
+
+	/**
+	 * Have the given workers draw their share of points, in passes if there is a listener.
+	 *
+	 * @param workers The workers, new or restored from a checkpoint.
+	 * @return The accumulator.
+	 */
+	private FlameAccumulator run( List<FlameWorker> workers )
+	{
+		this.deadline = System.nanoTime() + this.timeBudget * 1000000;
+		this.nextCheckpoint = System.nanoTime() + this.checkpointInterval * 1000000;
+
+		long totalIterations = ( long )this.density * this.width * this.height;
+		long[] shares = this.shares( totalIterations );
+
+		// The number of points this computation draws, which is less than
+		// the total number of points of the fractal if it only computes a part of it.
+		long plannedIterations = 0;
+
+		for( long share : shares )
+		{
+			plannedIterations += share;
+		}
+
+		ExecutorService executor = workers.size() > 1 ? Executors.newFixedThreadPool( workers.size() ) : null;
+
+		if( this.metrics != null )
+		{
+			this.histogramBytes = 0;
+
+			for( FlameWorker worker : workers )
+			{
+				worker.countMetrics();
+				this.histogramBytes += worker.builder().bytes();
+			}
+
+			this.metrics.addHistogramBytes( this.histogramBytes );
+		}
+
+		try
+		{
+			long target = this.listener == null && this.convergenceThreshold == 0
+						? totalIterations
+						: Math.min( totalIterations, ( long )Math.ceil( FIRST_PASS_DENSITY * this.width * this.height ) );
+
+			// Skip the passes already completed before a checkpoint.
+			double drawn = ( double )FlameComputation.iterations( workers ) / plannedIterations;
+
+			while( target < totalIterations && ( double )target / totalIterations <= drawn )
+			{
+				target = Math.min( totalIterations, target * 2 );
+			}
+
+			// The intensities of the previous pass, to measure the convergence.
+			float[] previous = null;
+
+			while( true )
+			{
+				boolean completed = this.runPass( executor, workers, shares, ( double )target / totalIterations );
+
+				// Read once, so that every decision below is taken on the same condition.
+				boolean over = this.isOver();
+
+				if( !completed && !over )
+				{
+					// The workers stopped for a checkpoint, before the end of the pass.
+					this.writeCheckpoint( workers );
+
+					continue;
+				}
+
+				// A render whose last pass completed is done, even if it ran out of time right after.
+				boolean done = completed && target == totalIterations;
+				FlameAccumulator snapshot = null;
+				boolean converged = false;
+
+				if( !done && !over && this.convergenceThreshold > 0 )
+				{
+					snapshot = this.accumulate( workers, true, executor );
+
+					float[] intensities = FlameComputation.intensities( snapshot );
+					converged = previous != null && FlameComputation.change( previous, intensities ) < this.convergenceThreshold;
+					previous = intensities;
+				}
+
+				if( done || over || converged )
+				{
+					if( this.checkpoint != null )
+					{
+						if( !done && !converged )
+						{
+							// Keep the points drawn so far, to resume the computation later.
+							this.writeCheckpoint( workers );
+						}
+						else
+						{
+							this.checkpoint.delete();
+						}
+					}
+
+					FlameAccumulator result = this.accumulate( workers, false, executor );
+
+					if( this.listener != null )
+					{
+						this.listener.passCompleted( result, FlameComputation.iterations( workers ), plannedIterations );
+					}
+
+					return result;
+				}
+
+				if( this.listener != null )
+				{
+					if( snapshot == null )
+					{
+						snapshot = this.accumulate( workers, true, executor );
+					}
+
+					this.listener.passCompleted( snapshot, FlameComputation.iterations( workers ), plannedIterations );
+				}
+
+				target = Math.min( totalIterations, target * 2 );
+			}
+		}
+		finally
+		{
+			if( executor != null )
+			{
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * @param accumulator An accumulator.
+	 * @return The intensity of each of its points, row after row.
+	 */
+	private static float[] intensities( FlameAccumulator accumulator )
+	{
+		float[] intensities = new float[ accumulator.width() * accumulator.height() ];
+
+		for( int y = 0, i = 0; y < accumulator.height(); y++ )
+		{
+			for( int x = 0; x < accumulator.width(); x++, i++ )
+			{
+				intensities[ i ] = ( float )accumulator.intensity( x, y );
+			}
+		}
+
+		return intensities;
+	}
+
+	/**
+	 * Measure how much an image has changed between two passes.
+	 *
+	 * @param previous The intensities of the points after the previous pass.
+	 * @param current The intensities of the points after the current pass.
+	 * @return The mean absolute difference of the intensities,
+	 * 		   over the points hit after either pass.
+	 */
+	private static double change( float[] previous, float[] current )
+	{
+		double sum = 0;
+		int count = 0;
+
+		for( int i = 0; i < current.length; i++ )
+		{
+			if( previous[ i ] > 0 || current[ i ] > 0 )
+			{
+				sum += Math.abs( current[ i ] - previous[ i ] );
+				count++;
+			}
+		}
+
+		return count == 0 ? 0 : sum / count;
+	}
+
+	/**
+	 * @return The number of workers the computation is split between,
+	 * 		   including the ones of the other parts if partitioned.
+	 */
+	private int workerCount()
+	{
+		return this.partitions > 0 ? this.partitions : this.workers;
+	}
+
+	/**
+	 * @param totalIterations The total number of points of the fractal.
+	 * @return The number of points each worker of this computation has to draw.
+	 */
+	private long[] shares( long totalIterations )
+	{
+		int count = this.workerCount();
+		long[] shares = new long[ count ];
+
+		for( int i = 0; i < count; i++ )
+		{
+			// Spread the remaining points over the first workers.
+			shares[ i ] = totalIterations / count + ( i < totalIterations % count ? 1 : 0 );
+		}
+
+		return this.partitions > 0 ? new long[] { shares[ this.partition ] } : shares;
+	}
+
+	/**
+	 * Save the state of the workers to the checkpoint file. The checkpoint is first
+	 * written to a temporary file, which then replaces the previous checkpoint,
+	 * so that a crash while saving it doesn't lose the previous one.
+	 *
+	 * @param workers The workers, which must not be drawing points.
+	 * @throws IllegalStateException If the checkpoint cannot be saved.
+	 */
+	private void writeCheckpoint( List<FlameWorker> workers )
+	{
+		long start = System.nanoTime();
+		File temporary = new File( this.checkpoint.getPath() + ".tmp" );
+
+		try
+		{
+			DataOutputStream data = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( temporary ) ) );
+
+			try
+			{
+				data.writeInt( CHECKPOINT_MAGIC );
+				data.writeInt( CHECKPOINT_VERSION );
+				this.writeParameters( data );
+
+				for( FlameWorker worker : workers )
+				{
+					worker.writeState( data );
+				}
+			}
+			finally
+			{
+				data.close();
+			}
+		}
+		catch( IOException e )
+		{
+			throw new IllegalStateException( "The checkpoint could not be saved.", e );
+		}
+
+		if( !temporary.renameTo( this.checkpoint ) && !( this.checkpoint.delete() && temporary.renameTo( this.checkpoint ) ) )
+		{
+			throw new IllegalStateException( "The checkpoint could not be saved to " + this.checkpoint + "." );
+		}
+
+		this.nextCheckpoint = System.nanoTime() + this.checkpointInterval * 1000000;
+
+		if( this.metrics != null )
+		{
+			this.metrics.addPhase( RenderMetrics.CHECKPOINT, System.nanoTime() - start );
+		}
+	}
+
+	/**
+	 * Restore the workers saved to a checkpoint.
+	 *
+	 * @param checkpoint The file the checkpoint has been saved to.
+	 * @return The workers.
+	 * @throws IOException If the checkpoint cannot be read,
+	 * 					   or has been saved by a different computation.
+	 */
+	private List<FlameWorker> readCheckpoint( File checkpoint ) throws IOException
+	{
+		DataInputStream data = new DataInputStream( new BufferedInputStream( new FileInputStream( checkpoint ) ) );
+
+		try
+		{
+			if( data.readInt() != CHECKPOINT_MAGIC || data.readInt() != CHECKPOINT_VERSION )
+			{
+				throw new IOException( checkpoint + " is not a checkpoint." );
+			}
+
+			ByteArrayOutputStream parameters = new ByteArrayOutputStream();
+			this.writeParameters( new DataOutputStream( parameters ) );
+
+			byte[] saved = new byte[ parameters.size() ];
+			data.readFully( saved );
+
+			if( !Arrays.equals( saved, parameters.toByteArray() ) )
+			{
+				throw new IOException( checkpoint + " has been saved by a different computation." );
+			}
+
+			List<FlameWorker> workers = new ArrayList<FlameWorker>();
+			int count = this.partitions > 0 ? 1 : this.workers;
+
+			for( int i = 0; i < count; i++ )
+			{
+				workers.add( FlameWorker.readState( this, this.transformations, this.finalTransformation, this.createBuilder(), data ) );
+			}
+
+			return workers;
+		}
+		finally
+		{
+			data.close();
+		}
+	}
+
+	/**
+	 * Write everything the points drawn depend on, in full, so that a checkpoint
+	 * can only be resumed by the computation which saved it.
+	 */
+	private void writeParameters( DataOutputStream data ) throws IOException
+	{
+		data.writeInt( this.transformations.size() );
+
+		for( FlameTransformation transformation : this.transformations )
+		{
+			for( double component : transformation.affineTransformation().components() )
+			{
+				data.writeDouble( component );
+			}
+
+			for( double weight : transformation.variationWeights() )
+			{
+				data.writeDouble( weight );
+			}
+
+			data.writeDouble( transformation.weight() );
+		}
+
+		data.writeBoolean( this.finalTransformation != null );
+
+		if( this.finalTransformation != null )
+		{
+			for( double component : this.finalTransformation.components() )
+			{
+				data.writeDouble( component );
+			}
+		}
+
+		data.writeDouble( this.frame.center().x() );
+		data.writeDouble( this.frame.center().y() );
+		data.writeDouble( this.frame.width() );
+		data.writeDouble( this.frame.height() );
+		data.writeInt( this.width );
+		data.writeInt( this.height );
+		data.writeInt( this.density );
+		data.writeInt( this.supersampling );
+		data.writeInt( this.workerCount() );
+		data.writeInt( this.partition );
+		data.writeLong( this.seed );
+
+		// The streams the family creates from the seed tell it apart from the others.
+		ByteArrayOutputStream streams = new ByteArrayOutputStream();
+		ObjectOutputStream objects = new ObjectOutputStream( streams );
+		objects.writeObject( this.randomStreams.create( this.seed, this.workerCount() ) );
+		objects.close();
+
+		data.writeInt( streams.size() );
+		streams.writeTo( data );
+	}
+
+	/**
+	 * Create the workers, deriving the stream of each worker from the computation's seed,
+	 * so that their streams are independent from each other, but the same
+	 * from one computation to another.
+	 * If only a part of the fractal is computed, only the worker of that part is created.
+	 *
+	 * @param count The number of workers the computation is split between.
+	 * @return The workers.
+	 */
+	private List<FlameWorker> createWorkers( int count )
+	{
+		List<FlameWorker> workers = new ArrayList<FlameWorker>();
+		Random[] streams = this.randomStreams.create( this.seed, count );
+
+		for( int i = 0; i < count; i++ )
+		{
+			if( this.partitions > 0 && i != this.partition )
+			{
+				continue;
+			}
+
+			FlameAccumulator.Builder builder = this.createBuilder();
+
+			workers.add( new FlameWorker( this, this.transformations, this.finalTransformation, builder, streams[ i ] ) );
+		}
+
+		return workers;
+	}
+
+	/**
+	 * @return A new builder, whose histogram is stored as requested.
+	 * @throws IllegalStateException If the file of a mapped histogram cannot be created.
+	 */
+	private FlameAccumulator.Builder createBuilder()
+	{
+		int width = this.width * this.supersampling;
+		int height = this.height * this.supersampling;
+
+		if( !this.mapped )
+		{
+			return new FlameAccumulator.Builder( this.frame, width, height );
+		}
+
+		try
+		{
+			return new FlameAccumulator.Builder( this.frame, width, height, this.histogramDirectory );
+		}
+		catch( IOException e )
+		{
+			throw new IllegalStateException( "The histogram could not be mapped.", e );
+		}
+	}
+
+	/**
+	 * Apply the density estimation filter, if any, and downsample the accumulator.
+	 *
+	 * @param accumulator The accumulator built by the workers.
+	 * @param executor The executor to filter the rows on, or null to filter them on this thread.
+	 * @return The accumulator of the requested size.
+	 */
+	private FlameAccumulator filter( FlameAccumulator accumulator, ExecutorService executor )
+	{
+		if( this.densityEstimator == null && this.supersampling == 1 )
+		{
+			return accumulator;
+		}
+
+		DensityEstimator estimator = this.densityEstimator == null ? DensityEstimator.NONE : this.densityEstimator;
+
+		return estimator.apply( accumulator, this.supersampling, executor );
+	}
+
+	/**
+	 * Merge the builders of the workers, and filter the result.
+	 *
+	 * @see #merge( List, boolean )
+	 * @see #filter( FlameAccumulator, ExecutorService )
+	 */
+	private FlameAccumulator accumulate( List<FlameWorker> workers, boolean snapshot, ExecutorService executor )
+	{
+		if( this.metrics == null )
+		{
+			return this.filter( FlameComputation.merge( workers, snapshot ), executor );
+		}
+
+		long start = System.nanoTime();
+		FlameAccumulator merged = FlameComputation.merge( workers, snapshot );
+		long filterStart = System.nanoTime();
+		FlameAccumulator filtered = this.filter( merged, executor );
+
+		this.metrics.addPhase( RenderMetrics.MERGE, filterStart - start );
+
+		// The histograms alive at once: those of the workers, the copy
+		// merged into if they go on drawing points, and the filtered one.
+		long bytes = this.histogramBytes + ( snapshot ? merged.histogram().bytes() : 0 );
+
+		if( filtered != merged )
+		{
+			this.metrics.addPhase( RenderMetrics.FILTER, System.nanoTime() - filterStart );
+			bytes += filtered.histogram().bytes();
+		}
+
+		this.metrics.addHistogramBytes( bytes );
+
+		return filtered;
+	}
+
+	/**
+	 * Have every worker draw its share of points, up to the given fraction of it.
+	 *
+	 * @param executor The executor to run the workers on, or null to run the single worker on this thread.
+	 * @param workers The workers.
+	 * @param shares The total number of points each worker has to draw.
+	 * @param fraction The fraction of its share each worker must have drawn at the end of the pass.
+	 * @return Whether every worker has drawn its points, rather than being stopped before.
+	 */
+	private boolean runPass( ExecutorService executor, List<FlameWorker> workers, long[] shares, double fraction )
+	{
+		long start = System.nanoTime();
+
+		boolean completed = this.iterate( executor, workers, shares, fraction );
+
+		if( this.metrics != null )
+		{
+			this.metrics.addPhase( RenderMetrics.ITERATE, System.nanoTime() - start );
+
+			for( FlameWorker worker : workers )
+			{
+				worker.reportMetrics( this.metrics );
+			}
+		}
+
+		return completed;
+	}
+
+	/**
+	 * @see #runPass( ExecutorService, List, long[], double )
+	 */
+	private boolean iterate( ExecutorService executor, List<FlameWorker> workers, long[] shares, double fraction )
+	{
+		final long[] targets = new long[ shares.length ];
+
+		for( int i = 0; i < shares.length; i++ )
+		{
+			targets[ i ] = fraction >= 1.0 ? shares[ i ] : ( long )( shares[ i ] * fraction );
+		}
+
+		if( executor == null )
+		{
+			workers.get( 0 ).iterateUntil( targets[ 0 ] );
+		}
+		else
+		{
+			this.iterateInParallel( executor, workers, targets );
+		}
+
+		for( int i = 0; i < workers.size(); i++ )
+		{
+			if( workers.get( i ).iterations() < targets[ i ] )
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Have each worker draw points on the executor, up to its target.
+	 */
+	private void iterateInParallel( ExecutorService executor, List<FlameWorker> workers, long[] targets )
+	{
+
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+
+		for( int i = 0; i < workers.size(); i++ )
+		{
+			final FlameWorker worker = workers.get( i );
+			final long target = targets[ i ];
+
+			tasks.add( new Callable<Void>()
+			{
+				@Override
+				public Void call()
+				{
+					worker.iterateUntil( target );
+
+					return null;
+				}
+			} );
+		}
+
+		try
+		{
+			for( Future<Void> result : executor.invokeAll( tasks ) )
+			{
+				result.get();
+			}
+		}
+		catch( InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+
+			throw new IllegalStateException( "The computation has been interrupted.", e );
+		}
+		catch( ExecutionException e )
+		{
+			throw new IllegalStateException( "A worker failed to compute its points.", e.getCause() );
+		}
+	}
+
+	/**
+	 * Merge the builders of the workers, always in the same order
+	 * for the result to be deterministic, and build the accumulator.
+	 *
+	 * @param workers The workers.
+	 * @param snapshot Whether the workers will go on drawing points,
+	 * 				   in which case their builders are left untouched.
+	 * @return The accumulator holding the points drawn by all the workers.
+	 */
+	private static FlameAccumulator merge( List<FlameWorker> workers, boolean snapshot )
+	{
+		FlameAccumulator.Builder first = workers.get( 0 ).builder();
+		FlameAccumulator.Builder builder = snapshot ? new FlameAccumulator.Builder( first ) : first;
+
+		for( int i = 1; i < workers.size(); i++ )
+		{
+			builder.add( workers.get( i ).builder() );
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * @param workers The workers.
+	 * @return The number of points drawn by all the workers so far.
+	 */
+	private static long iterations( List<FlameWorker> workers )
+	{
+		long iterations = 0;
+
+		for( FlameWorker worker : workers )
+		{
+			iterations += worker.iterations();
+		}
+
+		return iterations;
+	}
+
+}
@@ -0,0 +1,343 @@
+package ch.epfl.flamemaker.flame;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.InterpolatedPalette;
+import ch.epfl.flamemaker.geometry2d.Point;
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+import ch.epfl.flamemaker.util.RandomStreams;
+
+public class FlameComputationTest
+{
+	private static final Rectangle FRAME = new Rectangle( new Point( -0.25, 0 ), 5, 4 );
+	private static final int WIDTH = 50;
+	private static final int HEIGHT = 40;
+	private static final int DENSITY = 20;
+
+	static Flame sharkfin()
+	{
+		return FlamePPMMaker.sharkfinFlame();
+	}
+
+	static void assertSameAccumulator( FlameAccumulator expected, FlameAccumulator actual )
+	{
+		assertEquals( expected.width(), actual.width() );
+		assertEquals( expected.height(), actual.height() );
+
+		for( int y = 0; y < expected.height(); y++ )
+		{
+			for( int x = 0; x < expected.width(); x++ )
+			{
+				assertEquals( expected.intensity( x, y ), actual.intensity( x, y ), 0 );
+			}
+		}
+	}
+
+	@Test
+	public void testSameSeedAndWorkersGiveSameResult()
+	{
+		FlameAccumulator a = sharkfin().compute( FRAME, WIDTH, HEIGHT, DENSITY, 3, 42 );
+		FlameAccumulator b = sharkfin().compute( FRAME, WIDTH, HEIGHT, DENSITY, 3, 42 );
+
+		assertSameAccumulator( a, b );
+	}
+
+	@Test
+	public void testSingleWorkerIsDefault()
+	{
+		FlameAccumulator a = sharkfin().compute( FRAME, WIDTH, HEIGHT, DENSITY );
+		FlameAccumulator b = sharkfin().compute( FRAME, WIDTH, HEIGHT, DENSITY, 1, Flame.DEFAULT_SEED );
+
+		assertSameAccumulator( a, b );
+	}
+
+	@Test
+	public void testProgressiveGivesSameResultAsOneShot()
+	{
+		for( int workers = 1; workers <= 3; workers++ )
+		{
+			final int[] passes = { 0 };
+
+			FlameComputation computation = new FlameComputation( sharkfin(), FRAME, WIDTH, HEIGHT, DENSITY );
+			computation.setWorkers( workers );
+			computation.setListener( new FlameComputation.Listener()
+			{
+				@Override
+				public void passCompleted( FlameAccumulator accumulator, long iterations, long totalIterations )
+				{
+					passes[ 0 ]++;
+				}
+			} );
+
+			FlameAccumulator progressive = computation.compute();
+
+			assertTrue( passes[ 0 ] > 1 );
+			assertSameAccumulator( sharkfin().compute( FRAME, WIDTH, HEIGHT, DENSITY, workers, Flame.DEFAULT_SEED ), progressive );
+		}
+	}
+
+	@Test
+	public void testConvergenceStopsBeforeDensity()
+	{
+		final long[] iterations = new long[ 2 ];
+
+		FlameComputation computation = new FlameComputation( sharkfin(), FRAME, WIDTH, HEIGHT, 100 * DENSITY );
+		computation.setConvergenceThreshold( 0.1 );
+		computation.setListener( new FlameComputation.Listener()
+		{
+			@Override
+			public void passCompleted( FlameAccumulator accumulator, long done, long total )
+			{
+				iterations[ 0 ] = done;
+				iterations[ 1 ] = total;
+			}
+		} );
+
+		computation.compute();
+
+		assertTrue( iterations[ 0 ] > 0 );
+		assertTrue( iterations[ 0 ] < iterations[ 1 ] );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testNegativeConvergenceThreshold()
+	{
+		new FlameComputation( sharkfin(), FRAME, WIDTH, HEIGHT, DENSITY ).setConvergenceThreshold( -1 );
+	}
+
+	@Test
+	public void testMappedHistogramsGiveSameResult()
+	{
+		FlameComputation computation = new FlameComputation( sharkfin(), FRAME, WIDTH, HEIGHT, DENSITY );
+		computation.setWorkers( 2 );
+		computation.setMappedHistograms( null );
+		computation.setListener( new FlameComputation.Listener()
+		{
+			@Override
+			public void passCompleted( FlameAccumulator accumulator, long iterations, long totalIterations )
+			{
+			}
+		} );
+
+		FlameAccumulator mapped = computation.compute();
+		FlameAccumulator heap = sharkfin().compute( FRAME, WIDTH, HEIGHT, DENSITY, 2, Flame.DEFAULT_SEED );
+
+		assertSameAccumulator( heap, mapped );
+
+		for( int y = 0; y < heap.height(); y++ )
+		{
+			for( int x = 0; x < heap.width(); x++ )
+			{
+				assertEquals( heap.color( InterpolatedPalette.RGB_PALETTE, Color.BLACK, x, y ), mapped.color( InterpolatedPalette.RGB_PALETTE, Color.BLACK, x, y ) );
+			}
+		}
+	}
+
+	@Test
+	public void testCheckpointsDoNotChangeResult() throws IOException
+	{
+		File checkpoint = File.createTempFile( "flame", ".checkpoint" );
+
+		// Large enough for the workers to be stopped by checkpoints in the middle of their share.
+		FlameComputation computation = new FlameComputation( sharkfin(), FRAME, 4 * WIDTH, 4 * HEIGHT, DENSITY );
+		computation.setWorkers( 2 );
+		computation.setCheckpoint( checkpoint, 1 );
+
+		assertSameAccumulator( sharkfin().compute( FRAME, 4 * WIDTH, 4 * HEIGHT, DENSITY, 2, Flame.DEFAULT_SEED ), computation.compute() );
+		assertFalse( checkpoint.exists() );
+	}
+
+	@Test
+	public void testResumeGivesSameResultAsUninterrupted() throws IOException
+	{
+		for( int workers = 1; workers <= 2; workers++ )
+		{
+			File checkpoint = File.createTempFile( "flame", ".checkpoint" );
+
+			try
+			{
+				final FlameComputation interrupted = new FlameComputation( sharkfin(), FRAME, WIDTH, HEIGHT, DENSITY );
+				interrupted.setWorkers( workers );
+				interrupted.setCheckpoint( checkpoint, 60000 );
+				interrupted.setListener( new FlameComputation.Listener()
+				{
+					@Override
+					public void passCompleted( FlameAccumulator accumulator, long iterations, long totalIterations )
+					{
+						interrupted.cancel();
+					}
+				} );
+				interrupted.compute();
+
+				assertTrue( checkpoint.exists() );
+
+				FlameComputation resumed = new FlameComputation( sharkfin(), FRAME, WIDTH, HEIGHT, DENSITY );
+				resumed.setWorkers( workers );
+
+				assertSameAccumulator( sharkfin().compute( FRAME, WIDTH, HEIGHT, DENSITY, workers, Flame.DEFAULT_SEED ), resumed.resume( checkpoint ) );
+			}
+			finally
+			{
+				checkpoint.delete();
+			}
+		}
+	}
+
+	@Test
+	public void testResumeWithFastStreams() throws IOException
+	{
+		File checkpoint = File.createTempFile( "flame", ".checkpoint" );
+
+		try
+		{
+			final FlameComputation interrupted = new FlameComputation( sharkfin(), FRAME, WIDTH, HEIGHT, DENSITY );
+			interrupted.setWorkers( 2 );
+			interrupted.setRandomStreams( RandomStreams.XOSHIRO256 );
+			interrupted.setCheckpoint( checkpoint, 60000 );
+			interrupted.setListener( new FlameComputation.Listener()
+			{
+				@Override
+				public void passCompleted( FlameAccumulator accumulator, long iterations, long totalIterations )
+				{
+					interrupted.cancel();
+				}
+			} );
+			interrupted.compute();
+
+			FlameComputation uninterrupted = new FlameComputation( sharkfin(), FRAME, WIDTH, HEIGHT, DENSITY );
+			uninterrupted.setWorkers( 2 );
+			uninterrupted.setRandomStreams( RandomStreams.XOSHIRO256 );
+
+			FlameComputation resumed = new FlameComputation( sharkfin(), FRAME, WIDTH, HEIGHT, DENSITY );
+			resumed.setWorkers( 2 );
+			resumed.setRandomStreams( RandomStreams.XOSHIRO256 );
+
+			assertSameAccumulator( uninterrupted.compute(), resumed.resume( checkpoint ) );
+		}
+		finally
+		{
+			checkpoint.delete();
+		}
+	}
+
+	@Test( expected = IOException.class )
+	public void testResumeDifferentStreams() throws IOException
+	{
+		File checkpoint = File.createTempFile( "flame", ".checkpoint" );
+
+		try
+		{
+			FlameComputation computation = new FlameComputation( sharkfin(), FRAME, WIDTH, HEIGHT, DENSITY );
+			computation.setRandomStreams( RandomStreams.XOSHIRO256 );
+			computation.setCheckpoint( checkpoint, 60000 );
+			computation.cancel();
+			computation.compute();
+
+			new FlameComputation( sharkfin(), FRAME, WIDTH, HEIGHT, DENSITY ).resume( checkpoint );
+		}
+		finally
+		{
+			checkpoint.delete();
+		}
+	}
+
+	@Test( expected = IOException.class )
+	public void testResumeDifferentWeights() throws IOException
+	{
+		File checkpoint = File.createTempFile( "flame", ".checkpoint" );
+
+		try
+		{
+			FlameComputation computation = new FlameComputation( sharkfin(), FRAME, WIDTH, HEIGHT, DENSITY );
+			computation.setCheckpoint( checkpoint, 60000 );
+			computation.cancel();
+			computation.compute();
+
+			Flame.Builder builder = new Flame.Builder( sharkfin() );
+			builder.setWeight( 0, 2 );
+
+			new FlameComputation( builder.build(), FRAME, WIDTH, HEIGHT, DENSITY ).resume( checkpoint );
+		}
+		finally
+		{
+			checkpoint.delete();
+		}
+	}
+
+	@Test
+	public void testCompletedRenderDeletesCheckpoint() throws IOException
+	{
+		File checkpoint = File.createTempFile( "flame", ".checkpoint" );
+
+		try
+		{
+			final FlameComputation computation = new FlameComputation( sharkfin(), FRAME, WIDTH, HEIGHT, DENSITY );
+			computation.setCheckpoint( checkpoint, 60000 );
+
+			// Cancelled while drawing its only pass, which is too short to be stopped before its end.
+			computation.setRandomStreams( new RandomStreams()
+			{
+				@Override
+				public Random[] create( long seed, int count )
+				{
+					return new Random[] { new Random( seed )
+					{
+						private int draws = 0;
+
+						@Override
+						protected int next( int bits )
+						{
+							// Well after the first points, which are not drawn.
+							if( ++this.draws == 10000 )
+							{
+								computation.cancel();
+							}
+
+							return super.next( bits );
+						}
+					} };
+				}
+			} );
+
+			assertSameAccumulator( sharkfin().compute( FRAME, WIDTH, HEIGHT, DENSITY ), computation.compute() );
+			assertFalse( checkpoint.exists() );
+		}
+		finally
+		{
+			checkpoint.delete();
+		}
+	}
+
+	@Test( expected = IOException.class )
+	public void testResumeDifferentComputation() throws IOException
+	{
+		File checkpoint = File.createTempFile( "flame", ".checkpoint" );
+
+		try
+		{
+			FlameComputation computation = new FlameComputation( sharkfin(), FRAME, WIDTH, HEIGHT, DENSITY );
+			computation.setCheckpoint( checkpoint, 60000 );
+			computation.cancel();
+			computation.compute();
+
+			new FlameComputation( sharkfin(), FRAME, WIDTH, HEIGHT, DENSITY + 1 ).resume( checkpoint );
+		}
+		finally
+		{
+			checkpoint.delete();
+		}
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testNoWorkers()
+	{
+		sharkfin().compute( FRAME, WIDTH, HEIGHT, DENSITY, 0 );
+	}
+}
@@ -0,0 +1,855 @@
+package ch.epfl.flamemaker.flame;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.InterpolatedPalette;
+import ch.epfl.flamemaker.geometry2d.AffineTransformation;
+import ch.epfl.flamemaker.geometry2d.Point;
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+
+/**
+ * A Flame fractal with the frame to draw it in, and the palette and background to color it with,
+ * as saved to and read from a file.
+ *
+ * Flames are saved either as text, one statement per line, blank lines and lines
+ * starting with # being ignored:
+ *
+ * <pre>
+ * version 1
+ * frame centerX centerY width height
+ * background r g b
+ * palette r1 g1 b1 r2 g2 b2 ...
+ * transformation a b c d e f w1 w2 w3 w4 w5 w6 [weight]
+ * final a b c d e f
+ * </pre>
+ *
+ * The version, if given, must come first, and the background and palette may be left out,
+ * for black and the RGB palette. The frame must be given once, and each transformation
+ * is given by the six coefficients of its affine transformation, the weights of the variations,
+ * in the order of {@link Variation#ALL_VARIATIONS}, and optionally how often it is chosen,
+ * relatively to the other transformations. The final transformation, given at most once
+ * and since version 2, is applied to the points before they are drawn.
+ *
+ * Or they are saved in binary, which is smaller and much faster to read, and can hold
+ * any number of flames, read one after the other as the file is read:
+ * the 4 bytes FLMB, the version as a byte, then for each flame the byte 1 followed by
+ * its frame, background, palette and transformations, and finally the byte 0.
+ * Since version 2, the transformations are followed by the byte 1 and the final transformation,
+ * or by the byte 0 if there is none.
+ * The weights of the variations of a transformation are preceded by a mask of the ones which
+ * are not 0, and only those are written.
+ * All numbers are written in big-endian order, as by {@link DataOutputStream}.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+public final class FlameFile
+{
+
+	/**
+	 * The extension of text flame files.
+	 */
+	public static final String EXTENSION = ".flm";
+
+	/**
+	 * The extension of binary flame files.
+	 */
+	public static final String BINARY_EXTENSION = ".flb";
+
+	/**
+	 * The version of the formats written, the last one which can be read.
+	 */
+	public static final int VERSION = 2;
+
+	/**
+	 * The first 4 bytes of binary flame files: FLMB.
+	 */
+	private static final int MAGIC = 0x464C4D42;
+
+	/**
+	 * The bytes which precede each flame of a binary file, and end it.
+	 */
+	private static final int FLAME = 1;
+	private static final int END = 0;
+
+	private final Flame flame;
+	private final Rectangle frame;
+	private final InterpolatedPalette palette;
+	private final Color background;
+
+	/**
+	 * A flame colored with the RGB palette on a black background.
+	 *
+	 * @param flame The fractal.
+	 * @param frame The frame to draw it in.
+	 */
+	public FlameFile( Flame flame, Rectangle frame )
+	{
+		this( flame, frame, InterpolatedPalette.RGB_PALETTE, Color.BLACK );
+	}
+
+	/**
+	 * @param flame The fractal.
+	 * @param frame The frame to draw it in.
+	 * @param palette The palette to color it with.
+	 * @param background The color of the background.
+	 */
+	public FlameFile( Flame flame, Rectangle frame, InterpolatedPalette palette, Color background )
+	{
+		this.flame = flame;
+		this.frame = frame;
+		this.palette = palette;
+		this.background = background;
+	}
+
+	/**
+	 * @return The fractal.
+	 */
+	public Flame flame()
+	{
+		return this.flame;
+	}
+
+	/**
+	 * @return The frame to draw the fractal in.
+	 */
+	public Rectangle frame()
+	{
+		return this.frame;
+	}
+
+	/**
+	 * @return The palette to color the fractal with.
+	 */
+	public InterpolatedPalette palette()
+	{
+		return this.palette;
+	}
+
+	/**
+	 * @return The color of the background.
+	 */
+	public Color background()
+	{
+		return this.background;
+	}
+
+	/**
+	 * Two flame files are equal if their flames, frames, palettes and backgrounds are.
+	 */
+	@Override
+	public boolean equals( Object other )
+	{
+		if( !( other instanceof FlameFile ) )
+		{
+			return false;
+		}
+
+		FlameFile that = ( FlameFile )other;
+
+		return this.flame.equals( that.flame )
+			&& this.frame.equals( that.frame )
+			&& this.palette.equals( that.palette )
+			&& this.background.equals( that.background );
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return 31 * ( 31 * ( 31 * this.flame.hashCode() + this.frame.hashCode() ) + this.palette.hashCode() ) + this.background.hashCode();
+	}
+
+	/**
+	 * Read a flame file, in binary or as text.
+	 *
+	 * @param file The file to read.
+	 * @return The flame, or the first one of a binary file holding several.
+	 * @throws IOException If the file cannot be read, or is not a valid flame file.
+	 */
+	public static FlameFile read( File file ) throws IOException
+	{
+		InputStream input = new BufferedInputStream( new FileInputStream( file ) );
+
+		try
+		{
+			// Binary files are told apart by their first bytes, whatever their name.
+			input.mark( 4 );
+			int magic = new DataInputStream( input ).readInt();
+			input.reset();
+
+			if( magic == MAGIC )
+			{
+				return FlameFile.readBinary( input );
+			}
+
+			return FlameFile.readText( new InputStreamReader( input, "UTF-8" ) );
+		}
+		catch( EOFException e )
+		{
+			throw new IOException( file + ": The file is empty or truncated.", e );
+		}
+		catch( IOException e )
+		{
+			throw new IOException( file + ": " + e.getMessage(), e );
+		}
+		finally
+		{
+			input.close();
+		}
+	}
+
+	/**
+	 * Write this flame to a file, in binary if its name ends with {@link #BINARY_EXTENSION},
+	 * and as text otherwise.
+	 *
+	 * @param file The file to write.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public void write( File file ) throws IOException
+	{
+		OutputStream output = new BufferedOutputStream( new FileOutputStream( file ) );
+
+		try
+		{
+			if( file.getName().endsWith( BINARY_EXTENSION ) )
+			{
+				this.writeBinary( output );
+			}
+			else
+			{
+				Writer writer = new OutputStreamWriter( output, "UTF-8" );
+				this.writeText( writer );
+				writer.flush();
+			}
+		}
+		finally
+		{
+			output.close();
+		}
+	}
+
+	/**
+	 * Read a flame saved as text from a stream, which is left open.
+	 *
+	 * @param input The stream to read from.
+	 * @return The flame.
+	 * @throws IOException If the stream cannot be read, or does not hold a valid flame file.
+	 */
+	public static FlameFile readText( Reader input ) throws IOException
+	{
+		BufferedReader lines = new BufferedReader( input );
+		List<FlameTransformation> transformations = new ArrayList<FlameTransformation>();
+		Rectangle frame = null;
+		InterpolatedPalette palette = null;
+		Color background = null;
+		AffineTransformation finalTransformation = null;
+		boolean first = true;
+		int number = 0;
+
+		for( String line = lines.readLine(); line != null; line = lines.readLine() )
+		{
+			number++;
+			line = line.trim();
+
+			if( line.isEmpty() || line.startsWith( "#" ) )
+			{
+				continue;
+			}
+
+			String[] words = line.split( "\\s+" );
+
+			try
+			{
+				if( words[ 0 ].equals( "version" ) )
+				{
+					if( !first )
+					{
+						throw new IOException( "the version must come first." );
+					}
+
+					double version = FlameFile.numbers( words, 1, 1 )[ 0 ];
+
+					if( version != ( int )version )
+					{
+						throw new IOException( "the version must be an integer." );
+					}
+
+					FlameFile.checkVersion( ( int )version );
+				}
+				else if( words[ 0 ].equals( "frame" ) )
+				{
+					if( frame != null )
+					{
+						throw new IOException( "the frame is given twice." );
+					}
+
+					double[] values = FlameFile.numbers( words, 4, 4 );
+					frame = new Rectangle( new Point( values[ 0 ], values[ 1 ] ), values[ 2 ], values[ 3 ] );
+				}
+				else if( words[ 0 ].equals( "background" ) )
+				{
+					if( background != null )
+					{
+						throw new IOException( "the background is given twice." );
+					}
+
+					double[] values = FlameFile.numbers( words, 3, 3 );
+					background = new Color( values[ 0 ], values[ 1 ], values[ 2 ] );
+				}
+				else if( words[ 0 ].equals( "palette" ) )
+				{
+					if( palette != null )
+					{
+						throw new IOException( "the palette is given twice." );
+					}
+
+					double[] values = FlameFile.numbers( words, 6, Integer.MAX_VALUE );
+
+					if( values.length % 3 != 0 )
+					{
+						throw new IOException( "palette takes 3 numbers per color." );
+					}
+
+					palette = FlameFile.palette( values );
+				}
+				else if( words[ 0 ].equals( "transformation" ) )
+				{
+					transformations.add( FlameFile.transformation( FlameFile.numbers( words, 12, 13 ) ) );
+				}
+				else if( words[ 0 ].equals( "final" ) )
+				{
+					if( finalTransformation != null )
+					{
+						throw new IOException( "the final transformation is given twice." );
+					}
+
+					finalTransformation = FlameFile.affine( FlameFile.numbers( words, 6, 6 ) );
+				}
+				else
+				{
+					throw new IOException( "unknown statement " + words[ 0 ] + "." );
+				}
+			}
+			catch( IOException e )
+			{
+				throw new IOException( "Line " + number + ": " + e.getMessage() );
+			}
+			catch( IllegalArgumentException e )
+			{
+				throw new IOException( "Line " + number + ": " + e.getMessage() );
+			}
+
+			first = false;
+		}
+
+		if( frame == null )
+		{
+			throw new IOException( "The frame is missing." );
+		}
+
+		if( transformations.isEmpty() )
+		{
+			throw new IOException( "There is no transformation." );
+		}
+
+		return new FlameFile(
+			new Flame( transformations, finalTransformation ),
+			frame,
+			palette == null ? InterpolatedPalette.RGB_PALETTE : palette,
+			background == null ? Color.BLACK : background
+		);
+	}
+
+	/**
+	 * Write this flame as text to a stream, which is left open.
+	 * The numbers are written in full, so that they are read back exactly.
+	 *
+	 * @param output The stream to write to.
+	 * @throws IOException If the stream cannot be written.
+	 */
+	public void writeText( Writer output ) throws IOException
+	{
+		StringBuilder text = new StringBuilder();
+
+		text.append( "version " ).append( VERSION ).append( '\n' );
+		FlameFile.append( text, "frame",
+			this.frame.center().x(), this.frame.center().y(), this.frame.width(), this.frame.height() );
+		FlameFile.append( text, "background",
+			this.background.red(), this.background.green(), this.background.blue() );
+
+		text.append( "palette" );
+
+		for( Color color : this.palette.colors() )
+		{
+			text.append( ' ' ).append( color.red() ).append( ' ' ).append( color.green() ).append( ' ' ).append( color.blue() );
+		}
+
+		text.append( '\n' );
+
+		for( FlameTransformation transformation : this.flame.transformations() )
+		{
+			text.append( "transformation" );
+
+			for( double component : transformation.affineTransformation().components() )
+			{
+				text.append( ' ' ).append( component );
+			}
+
+			for( double weight : transformation.variationWeights() )
+			{
+				text.append( ' ' ).append( weight );
+			}
+
+			text.append( ' ' ).append( transformation.weight() ).append( '\n' );
+		}
+
+		if( this.flame.finalTransformation() != null )
+		{
+			FlameFile.append( text, "final", this.flame.finalTransformation().components() );
+		}
+
+		output.write( text.toString() );
+	}
+
+	/**
+	 * Read a flame saved in binary from a stream, which is left open.
+	 *
+	 * @param input The stream to read from.
+	 * @return The flame, or the first one of a stream holding several.
+	 * @throws IOException If the stream cannot be read, or does not hold a valid flame file.
+	 */
+	public static FlameFile readBinary( InputStream input ) throws IOException
+	{
+		final List<FlameFile> files = new ArrayList<FlameFile>( 1 );
+
+		FlameFile.readBinary( input, new Listener()
+		{
+			@Override
+			public boolean flameRead( FlameFile file )
+			{
+				files.add( file );
+
+				return false;
+			}
+		} );
+
+		if( files.isEmpty() )
+		{
+			throw new IOException( "There is no flame." );
+		}
+
+		return files.get( 0 );
+	}
+
+	/**
+	 * Read the flames saved in binary in a stream, which is left open, one after the other.
+	 * Each flame is handed to the listener as soon as it is read, so that a file holding
+	 * thousands of flames never needs to be in memory at once.
+	 *
+	 * @param input The stream to read from.
+	 * @param listener The listener to hand the flames to.
+	 * @return The number of flames read.
+	 * @throws IOException If the stream cannot be read, does not hold valid flames,
+	 * 					   or the listener fails.
+	 */
+	public static int readBinary( InputStream input, Listener listener ) throws IOException
+	{
+		DataInputStream data = new DataInputStream( input instanceof BufferedInputStream ? input : new BufferedInputStream( input ) );
+
+		if( data.readInt() != MAGIC )
+		{
+			throw new IOException( "This is not a binary flame file." );
+		}
+
+		int version = data.readUnsignedByte();
+		FlameFile.checkVersion( version );
+
+		int count = 0;
+
+		for( int tag = data.readUnsignedByte(); tag != END; tag = data.readUnsignedByte() )
+		{
+			if( tag != FLAME )
+			{
+				throw new IOException( "Flame " + ( count + 1 ) + ": unknown tag " + tag + "." );
+			}
+
+			FlameFile file;
+
+			try
+			{
+				file = FlameFile.readFlame( data, version );
+			}
+			catch( EOFException e )
+			{
+				throw new IOException( "Flame " + ( count + 1 ) + ": the file is truncated.", e );
+			}
+			catch( IOException e )
+			{
+				throw new IOException( "Flame " + ( count + 1 ) + ": " + e.getMessage(), e );
+			}
+			catch( IllegalArgumentException e )
+			{
+				throw new IOException( "Flame " + ( count + 1 ) + ": " + e.getMessage(), e );
+			}
+
+			count++;
+
+			if( !listener.flameRead( file ) )
+			{
+				break;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Write this flame in binary to a stream, which is left open.
+	 *
+	 * @param output The stream to write to.
+	 * @throws IOException If the stream cannot be written.
+	 */
+	public void writeBinary( OutputStream output ) throws IOException
+	{
+		FlameFile.writeBinary( output, Collections.singletonList( this ) );
+	}
+
+	/**
+	 * Write flames in binary to a stream, which is left open, to be read back
+	 * one after the other by {@link #readBinary( InputStream, Listener )}.
+	 *
+	 * @param output The stream to write to.
+	 * @param files The flames to write.
+	 * @throws IOException If the stream cannot be written.
+	 */
+	public static void writeBinary( OutputStream output, Iterable<FlameFile> files ) throws IOException
+	{
+		DataOutputStream data = new DataOutputStream( new BufferedOutputStream( output ) );
+
+		data.writeInt( MAGIC );
+		data.writeByte( VERSION );
+
+		for( FlameFile file : files )
+		{
+			data.writeByte( FLAME );
+			file.writeFlame( data );
+		}
+
+		data.writeByte( END );
+		data.flush();
+	}
+
+	/**
+	 * Hands the flames of a binary stream, as they are read.
+	 */
+	public interface Listener
+	{
+
+		/**
+		 * Called once a flame has been read.
+		 *
+		 * @param file The flame.
+		 * @return Whether to go on reading the next flames.
+		 * @throws IOException If the flame cannot be handled, which stops the reading.
+		 */
+		boolean flameRead( FlameFile file ) throws IOException;
+
+	}
+
+	/**
+	 * Write a flame, after its tag: its frame, background, palette, and transformations.
+	 */
+	private void writeFlame( DataOutputStream data ) throws IOException
+	{
+		data.writeDouble( this.frame.center().x() );
+		data.writeDouble( this.frame.center().y() );
+		data.writeDouble( this.frame.width() );
+		data.writeDouble( this.frame.height() );
+
+		FlameFile.writeColor( data, this.background );
+
+		List<Color> colors = this.palette.colors();
+		data.writeInt( colors.size() );
+
+		for( Color color : colors )
+		{
+			FlameFile.writeColor( data, color );
+		}
+
+		List<FlameTransformation> transformations = this.flame.transformations();
+		data.writeInt( transformations.size() );
+		data.writeByte( Variation.ALL_VARIATIONS.size() );
+
+		for( FlameTransformation transformation : transformations )
+		{
+			for( double component : transformation.affineTransformation().components() )
+			{
+				data.writeDouble( component );
+			}
+
+			// Most variations are left out, so only the weights which are not 0 are written,
+			// after a mask of bits telling which ones they are.
+			double[] weights = transformation.variationWeights();
+
+			for( int i = 0; i < weights.length; i += 8 )
+			{
+				int mask = 0;
+
+				for( int j = i; j < Math.min( i + 8, weights.length ); j++ )
+				{
+					mask |= weights[ j ] != 0 ? 1 << ( j - i ) : 0;
+				}
+
+				data.writeByte( mask );
+			}
+
+			for( double weight : weights )
+			{
+				if( weight != 0 )
+				{
+					data.writeDouble( weight );
+				}
+			}
+
+			data.writeDouble( transformation.weight() );
+		}
+
+		AffineTransformation finalTransformation = this.flame.finalTransformation();
+		data.writeBoolean( finalTransformation != null );
+
+		if( finalTransformation != null )
+		{
+			for( double component : finalTransformation.components() )
+			{
+				data.writeDouble( component );
+			}
+		}
+	}
+
+	/**
+	 * Read a flame written by {@link #writeFlame( DataOutputStream )}.
+	 *
+	 * @param version The version of the file.
+	 * @throws IllegalArgumentException If a value is invalid.
+	 */
+	private static FlameFile readFlame( DataInputStream data, int version ) throws IOException
+	{
+		Rectangle frame = new Rectangle( new Point( data.readDouble(), data.readDouble() ), data.readDouble(), data.readDouble() );
+		Color background = FlameFile.readColor( data );
+
+		int colorCount = FlameFile.readCount( data, "colors" );
+		List<Color> colors = new ArrayList<Color>( Math.min( colorCount, 256 ) );
+
+		for( int i = 0; i < colorCount; i++ )
+		{
+			colors.add( FlameFile.readColor( data ) );
+		}
+
+		int transformationCount = FlameFile.readCount( data, "transformations" );
+		int variationCount = data.readUnsignedByte();
+
+		if( variationCount != Variation.ALL_VARIATIONS.size() )
+		{
+			throw new IOException( "the transformations have " + variationCount + " variations, not " + Variation.ALL_VARIATIONS.size() + "." );
+		}
+
+		List<FlameTransformation> transformations = new ArrayList<FlameTransformation>( Math.min( transformationCount, 256 ) );
+		double[] values = new double[ 7 + variationCount ];
+		boolean[] present = new boolean[ variationCount ];
+
+		for( int i = 0; i < transformationCount; i++ )
+		{
+			for( int j = 0; j < 6; j++ )
+			{
+				values[ j ] = data.readDouble();
+			}
+
+			for( int j = 0; j < variationCount; j += 8 )
+			{
+				int mask = data.readUnsignedByte();
+
+				for( int k = j; k < Math.min( j + 8, variationCount ); k++ )
+				{
+					present[ k ] = ( mask & 1 << ( k - j ) ) != 0;
+				}
+			}
+
+			for( int j = 0; j < variationCount; j++ )
+			{
+				values[ 6 + j ] = present[ j ] ? data.readDouble() : 0;
+			}
+
+			values[ 6 + variationCount ] = data.readDouble();
+
+			transformations.add( FlameFile.transformation( values ) );
+		}
+
+		if( transformations.isEmpty() )
+		{
+			throw new IOException( "there is no transformation." );
+		}
+
+		AffineTransformation finalTransformation = null;
+
+		if( version >= 2 && data.readBoolean() )
+		{
+			double[] components = new double[ 6 ];
+
+			for( int i = 0; i < components.length; i++ )
+			{
+				components[ i ] = data.readDouble();
+			}
+
+			finalTransformation = FlameFile.affine( components );
+		}
+
+		return new FlameFile( new Flame( transformations, finalTransformation ), frame, new InterpolatedPalette( colors ), background );
+	}
+
+	private static int readCount( DataInputStream data, String what ) throws IOException
+	{
+		int count = data.readInt();
+
+		if( count < 0 )
+		{
+			throw new IOException( "the number of " + what + " is negative." );
+		}
+
+		return count;
+	}
+
+	private static void writeColor( DataOutputStream data, Color color ) throws IOException
+	{
+		data.writeDouble( color.red() );
+		data.writeDouble( color.green() );
+		data.writeDouble( color.blue() );
+	}
+
+	private static Color readColor( DataInputStream data ) throws IOException
+	{
+		return new Color( data.readDouble(), data.readDouble(), data.readDouble() );
+	}
+
+	/**
+	 * @param version The version of a file.
+	 * @throws IOException If that version cannot be read.
+	 */
+	private static void checkVersion( int version ) throws IOException
+	{
+		if( version < 1 || version > VERSION )
+		{
+			throw new IOException( "version " + version + " is not supported, the last one is " + VERSION + "." );
+		}
+	}
+
+	/**
+	 * @param values The components of the colors, three by three.
+	 * @return The palette which interpolates between those colors.
+	 */
+	private static InterpolatedPalette palette( double[] values )
+	{
+		List<Color> colors = new ArrayList<Color>( values.length / 3 );
+
+		for( int i = 0; i < values.length; i += 3 )
+		{
+			colors.add( new Color( values[ i ], values[ i + 1 ], values[ i + 2 ] ) );
+		}
+
+		return new InterpolatedPalette( colors );
+	}
+
+	/**
+	 * @param values The coefficients, variations weights, and optional weight of a transformation.
+	 * @return The transformation.
+	 */
+	private static FlameTransformation transformation( double[] values )
+	{
+		AffineTransformation affine = FlameFile.affine( values );
+		double[] variationWeights = new double[ Variation.ALL_VARIATIONS.size() ];
+		System.arraycopy( values, 6, variationWeights, 0, variationWeights.length );
+
+		return new FlameTransformation( affine, variationWeights, values.length > 12 ? values[ 12 ] : 1 );
+	}
+
+	/**
+	 * @param values The coefficients of an affine transformation, first.
+	 * @return The affine transformation.
+	 */
+	private static AffineTransformation affine( double[] values )
+	{
+		return new AffineTransformation(
+			values[ 0 ], values[ 1 ], values[ 2 ],
+			values[ 3 ], values[ 4 ], values[ 5 ]
+		);
+	}
+
+	/**
+	 * Append a statement to a text flame file.
+	 */
+	private static void append( StringBuilder text, String statement, double... values )
+	{
+		text.append( statement );
+
+		for( double value : values )
+		{
+			text.append( ' ' ).append( value );
+		}
+
+		text.append( '\n' );
+	}
+
+	/**
+	 * @param words The words of a statement, its name first.
+	 * @param min The minimum number of arguments of the statement.
+	 * @param max The maximum number of arguments of the statement.
+	 * @return The arguments of the statement, as numbers.
+	 * @throws IOException If there are too few or too many arguments, or they are not numbers.
+	 */
+	private static double[] numbers( String[] words, int min, int max ) throws IOException
+	{
+		int count = words.length - 1;
+
+		if( count < min || count > max )
+		{
+			String expected = min == max ? "" + min : max == Integer.MAX_VALUE ? "at least " + min : min + " to " + max;
+
+			throw new IOException( words[ 0 ] + " takes " + expected + " numbers, not " + count + "." );
+		}
+
+		double[] numbers = new double[ count ];
+
+		for( int i = 0; i < count; i++ )
+		{
+			try
+			{
+				numbers[ i ] = Double.parseDouble( words[ i + 1 ] );
+			}
+			catch( NumberFormatException e )
+			{
+				throw new IOException( words[ i + 1 ] + " is not a number." );
+			}
+		}
+
+		return numbers;
+	}
+
+}
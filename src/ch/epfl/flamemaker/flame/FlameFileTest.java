@@ -0,0 +1,164 @@
+package ch.epfl.flamemaker.flame;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.InterpolatedPalette;
+import ch.epfl.flamemaker.geometry2d.AffineTransformation;
+import ch.epfl.flamemaker.geometry2d.Point;
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+
+public class FlameFileTest
+{
+	private static final String SHARKFIN =
+		"# Shark fin\n"
+		+ "frame -0.25 0 5 4\n"
+		+ "\n"
+		+ "transformation -0.4113504 -0.7124804 -0.4 0.7124795 -0.4113508 0.8  1 0.1 0 0 0 0\n"
+		+ "transformation -0.3957339 0 -1.6 0 -0.3957337 0.2  0 0 0 0 0.8 1\n"
+		+ "transformation 0.4810169 0 1 0 0.4810169 0.9  1 0 0 0 0 0\n";
+
+	@Test
+	public void testRead() throws IOException
+	{
+		FlameFile file = FlameFile.readText( new StringReader( SHARKFIN ) );
+
+		assertEquals( -0.25, file.frame().center().x(), 0 );
+		assertEquals( 5, file.frame().width(), 0 );
+		assertEquals( 4, file.frame().height(), 0 );
+
+		FlameComputationTest.assertSameAccumulator(
+			FlameComputationTest.sharkfin().compute( file.frame(), 50, 40, 10 ),
+			file.flame().compute( file.frame(), 50, 40, 10 )
+		);
+	}
+
+	@Test
+	public void testReadWeight() throws IOException
+	{
+		FlameFile file = FlameFile.readText( new StringReader( "frame 0 0 2 2\ntransformation 1 0 0 0 1 0 1 0 0 0 0 0 3\n" ) );
+
+		assertEquals( 3, new Flame.Builder( file.flame() ).weight( 0 ), 0 );
+	}
+
+	@Test( expected = IOException.class )
+	public void testMissingFrame() throws IOException
+	{
+		FlameFile.readText( new StringReader( "transformation 1 0 0 0 1 0 1 0 0 0 0 0\n" ) );
+	}
+
+	@Test( expected = IOException.class )
+	public void testTooFewNumbers() throws IOException
+	{
+		FlameFile.readText( new StringReader( "frame 0 0 2 2\ntransformation 1 0 0 0 1 0 1\n" ) );
+	}
+
+	@Test( expected = IOException.class )
+	public void testInvalidFrame() throws IOException
+	{
+		FlameFile.readText( new StringReader( "frame 0 0 -2 2\ntransformation 1 0 0 0 1 0 1 0 0 0 0 0\n" ) );
+	}
+
+	@Test( expected = IOException.class )
+	public void testUnsupportedVersion() throws IOException
+	{
+		FlameFile.readText( new StringReader( "version " + ( FlameFile.VERSION + 1 ) + "\nframe 0 0 2 2\ntransformation 1 0 0 0 1 0 1 0 0 0 0 0\n" ) );
+	}
+
+	@Test
+	public void testTextRoundTrip() throws IOException
+	{
+		StringWriter text = new StringWriter();
+		sample().writeText( text );
+
+		assertEquals( sample(), FlameFile.readText( new StringReader( text.toString() ) ) );
+	}
+
+	@Test
+	public void testBinaryRoundTrip() throws IOException
+	{
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		sample().writeBinary( binary );
+
+		assertEquals( sample(), FlameFile.readBinary( new ByteArrayInputStream( binary.toByteArray() ) ) );
+	}
+
+	@Test
+	public void testBinaryStream() throws IOException
+	{
+		FlameFile other = FlameFile.readText( new StringReader( SHARKFIN ) );
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		FlameFile.writeBinary( binary, Arrays.asList( sample(), other, sample() ) );
+
+		final List<FlameFile> files = new ArrayList<FlameFile>();
+		int count = FlameFile.readBinary( new ByteArrayInputStream( binary.toByteArray() ), new FlameFile.Listener()
+		{
+			@Override
+			public boolean flameRead( FlameFile file )
+			{
+				files.add( file );
+
+				return true;
+			}
+		} );
+
+		assertEquals( 3, count );
+		assertEquals( Arrays.asList( sample(), other, sample() ), files );
+	}
+
+	@Test( expected = IOException.class )
+	public void testTruncatedBinary() throws IOException
+	{
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		sample().writeBinary( binary );
+
+		FlameFile.readBinary( new ByteArrayInputStream( Arrays.copyOf( binary.toByteArray(), binary.size() - 10 ) ) );
+	}
+
+	@Test
+	public void testReadTellsFormatsApart() throws IOException
+	{
+		File text = File.createTempFile( "flame", FlameFile.EXTENSION );
+		File binary = File.createTempFile( "flame", FlameFile.BINARY_EXTENSION );
+
+		try
+		{
+			sample().write( text );
+			sample().write( binary );
+
+			assertTrue( binary.length() < text.length() );
+			assertEquals( sample(), FlameFile.read( text ) );
+			assertEquals( sample(), FlameFile.read( binary ) );
+		}
+		finally
+		{
+			text.delete();
+			binary.delete();
+		}
+	}
+
+	private static FlameFile sample()
+	{
+		Flame.Builder builder = new Flame.Builder( FlameComputationTest.sharkfin() );
+		builder.setWeight( 1, 0.1 / 3 );
+
+		return new FlameFile(
+			new Flame( builder.build().transformations(), new AffineTransformation( 1, 0, 0, 0, -1, 0.25 ) ),
+			new Rectangle( new Point( -0.25, 1.0 / 7 ), 5, 4 ),
+			new InterpolatedPalette( Arrays.asList( Color.WHITE, new Color( 0.1, 0.2, 1.0 / 3 ), Color.RED ) ),
+			new Color( 0.5, 0.25, 0 )
+		);
+	}
+}
@@ -0,0 +1,545 @@
+package ch.epfl.flamemaker.flame;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.InterpolatedPalette;
+import ch.epfl.flamemaker.geometry2d.AffineTransformation;
+import ch.epfl.flamemaker.geometry2d.Point;
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+
+/**
+ * Import the flames of the XML .flame files written by flam3, Apophysis and other flame tools.
+ *
+ * The file is read as a stream, and each flame is handed to a listener as soon as its element
+ * ends, so that files holding hundreds of flames never need to be in memory at once.
+ * A flame which cannot be imported is reported to the listener, and the import goes on
+ * with the next one.
+ *
+ * Each xform becomes a {@link FlameTransformation} with its weight, its affine coefficients,
+ * given by flam3 as "xx yx xy yy ox oy", and the weights of its variations which are part
+ * of {@link Variation#ALL_VARIATIONS}. The colors of a flame, given one by one or as a
+ * hexadecimal palette, become an {@link InterpolatedPalette}, and its size, center, scale
+ * and zoom its frame.
+ *
+ * The y axis points down in flam3 and up here, so the points of the flames are mirrored
+ * by a final transformation, and the center of their frame with them, for the flames
+ * to look the same as in the other tools. Mirroring the transformations themselves
+ * would not do, since it reverses the direction of swirls.
+ *
+ * What cannot be rendered here is left out, and reported with each flame: the other variations
+ * by name, and post transformations, final xforms and rotations as "post", "finalxform" and "rotate".
+ * The colors of the xforms are left out silently, since they are computed from their order here.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+public final class FlameImporter
+{
+
+	/**
+	 * The extension of XML flame files.
+	 */
+	public static final String EXTENSION = ".flame";
+
+	/**
+	 * The variations, by their name in flam3.
+	 */
+	private static final Map<String, Variation> VARIATIONS = new HashMap<String, Variation>();
+
+	/**
+	 * The variations of flam3 whose name holds an underscore, which are thus
+	 * not mistaken for parameters of other variations.
+	 */
+	private static final Set<String> UNDERSCORED_VARIATIONS = new HashSet<String>( Arrays.asList(
+		"radial_blur", "pre_blur", "super_shape", "wedge_julia", "wedge_sph"
+	) );
+
+	/**
+	 * The attributes of xforms which are neither variations nor their parameters.
+	 */
+	private static final Set<String> XFORM_ATTRIBUTES = new HashSet<String>( Arrays.asList(
+		"weight", "color", "color_speed", "symmetry", "animate", "coefs", "post",
+		"chaos", "opacity", "var_color", "name", "plotmode", "visibility"
+	) );
+
+	/**
+	 * Mirror the points of a flame on the x axis.
+	 */
+	private static final AffineTransformation MIRROR = new AffineTransformation( 1, 0, 0, 0, -1, 0 );
+
+	static
+	{
+		for( Variation variation : Variation.ALL_VARIATIONS )
+		{
+			VARIATIONS.put( variation.name().toLowerCase(), variation );
+		}
+
+		// Flat 3D linear is the same as linear in the plane.
+		VARIATIONS.put( "linear3d", Variation.ALL_VARIATIONS.get( 0 ) );
+	}
+
+	private FlameImporter()
+	{
+	}
+
+	/**
+	 * Hands the flames of a file, as they are imported.
+	 */
+	public interface Listener
+	{
+
+		/**
+		 * Called once a flame has been imported.
+		 *
+		 * @param name The name of the flame, or null if it has none.
+		 * @param file The flame, with its frame, palette and background.
+		 * @param unsupported What the flame uses which has been left out, sorted by name.
+		 * @return Whether to go on importing the next flames.
+		 * @throws IOException If the flame cannot be handled, which stops the import.
+		 */
+		boolean flameImported( String name, FlameFile file, SortedSet<String> unsupported ) throws IOException;
+
+		/**
+		 * Called once a flame which cannot be imported has been read.
+		 *
+		 * @param name The name of the flame, or null if it has none.
+		 * @param error Why it cannot be imported, with the line of the error.
+		 * @return Whether to go on importing the next flames.
+		 * @throws IOException If the error cannot be handled, which stops the import.
+		 */
+		boolean flameFailed( String name, String error ) throws IOException;
+
+	}
+
+	/**
+	 * Import the flames of a file.
+	 *
+	 * @param file The file to read.
+	 * @param listener The listener to hand the flames to.
+	 * @return The number of flames read, including those which could not be imported.
+	 * @throws IOException If the file cannot be read, is not well-formed XML, or the listener fails.
+	 */
+	public static int read( File file, Listener listener ) throws IOException
+	{
+		InputStream input = new BufferedInputStream( new FileInputStream( file ) );
+
+		try
+		{
+			return FlameImporter.read( input, listener );
+		}
+		catch( IOException e )
+		{
+			throw new IOException( file + ": " + e.getMessage(), e );
+		}
+		finally
+		{
+			input.close();
+		}
+	}
+
+	/**
+	 * Import the flames of a stream, which is left open.
+	 *
+	 * @param input The stream to read from.
+	 * @param listener The listener to hand the flames to.
+	 * @return The number of flames read, including those which could not be imported.
+	 * @throws IOException If the stream cannot be read, is not well-formed XML, or the listener fails.
+	 */
+	public static int read( InputStream input, Listener listener ) throws IOException
+	{
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+
+		// Flame files have no use for them, and they would let a file read others.
+		factory.setProperty( XMLInputFactory.SUPPORT_DTD, false );
+		factory.setProperty( XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false );
+
+		XMLStreamReader xml;
+
+		try
+		{
+			xml = factory.createXMLStreamReader( input );
+		}
+		catch( XMLStreamException e )
+		{
+			throw new IOException( e.getMessage(), e );
+		}
+
+		int count = 0;
+
+		try
+		{
+			Imported flame = null;
+
+			while( xml.hasNext() )
+			{
+				int event = xml.next();
+
+				if( event == XMLStreamConstants.START_ELEMENT )
+				{
+					if( xml.getLocalName().equals( "flame" ) )
+					{
+						flame = new Imported( xml.getAttributeValue( null, "name" ) );
+						flame.read( xml );
+					}
+					else if( flame != null )
+					{
+						flame.read( xml );
+					}
+				}
+				else if( event == XMLStreamConstants.END_ELEMENT && xml.getLocalName().equals( "flame" ) && flame != null )
+				{
+					count++;
+
+					FlameFile file = flame.build( xml );
+					boolean more = file == null
+								 ? listener.flameFailed( flame.name, flame.error )
+								 : listener.flameImported( flame.name, file, flame.unsupported );
+
+					if( !more )
+					{
+						break;
+					}
+
+					flame = null;
+				}
+			}
+		}
+		catch( XMLStreamException e )
+		{
+			throw new IOException( e.getMessage(), e );
+		}
+		finally
+		{
+			try
+			{
+				xml.close();
+			}
+			catch( XMLStreamException e )
+			{
+				// The stream is closed by the caller.
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * A flame being imported, from the start of its element to its end.
+	 * Once an error has been found, the rest of the flame is skipped.
+	 */
+	private static final class Imported
+	{
+
+		private final String name;
+		private Rectangle frame;
+		private Color background;
+		private final List<FlameTransformation> transformations = new ArrayList<FlameTransformation>();
+		private final SortedMap<Integer, Color> colors = new TreeMap<Integer, Color>();
+		private final SortedSet<String> unsupported = new TreeSet<String>();
+
+		/**
+		 * The first error found in the flame, or null if there is none.
+		 */
+		private String error;
+
+		Imported( String name )
+		{
+			this.name = name;
+		}
+
+		/**
+		 * Read an element of the flame: the flame itself, an xform, a color, or a palette,
+		 * unless an error has already been found.
+		 */
+		void read( XMLStreamReader xml ) throws XMLStreamException
+		{
+			if( this.error != null )
+			{
+				return;
+			}
+
+			try
+			{
+				this.element( xml );
+			}
+			catch( IllegalArgumentException e )
+			{
+				this.fail( xml, e.getMessage() );
+			}
+		}
+
+		/**
+		 * @throws IllegalArgumentException If the element is invalid.
+		 */
+		private void element( XMLStreamReader xml ) throws XMLStreamException
+		{
+			String element = xml.getLocalName();
+
+			if( element.equals( "flame" ) )
+			{
+				this.attributes( xml );
+			}
+			else if( element.equals( "xform" ) )
+			{
+				this.transformations.add( this.xform( xml ) );
+			}
+			else if( element.equals( "finalxform" ) )
+			{
+				this.unsupported.add( "finalxform" );
+			}
+			else if( element.equals( "color" ) )
+			{
+				int index = ( int )FlameImporter.numbers( xml, "index", 1, null )[ 0 ];
+				double[] rgb = FlameImporter.numbers( xml, "rgb", 3, null );
+
+				this.colors.put( index, new Color( rgb[ 0 ] / 255, rgb[ 1 ] / 255, rgb[ 2 ] / 255 ) );
+			}
+			else if( element.equals( "palette" ) )
+			{
+				this.palette( xml.getAttributeValue( null, "format" ), xml.getElementText() );
+			}
+		}
+
+		private void fail( XMLStreamReader xml, String message )
+		{
+			this.error = "Line " + xml.getLocation().getLineNumber() + ": " + message;
+		}
+
+		/**
+		 * Read the attributes of the flame element.
+		 */
+		private void attributes( XMLStreamReader xml )
+		{
+			double[] size = FlameImporter.numbers( xml, "size", 2, null );
+			double[] center = FlameImporter.numbers( xml, "center", 2, "0 0" );
+			double scale = FlameImporter.numbers( xml, "scale", 1, null )[ 0 ]
+						 * Math.pow( 2, FlameImporter.numbers( xml, "zoom", 1, "0" )[ 0 ] );
+
+			// Mirrored, as the points are.
+			this.frame = new Rectangle( new Point( center[ 0 ], -center[ 1 ] ), size[ 0 ] / scale, size[ 1 ] / scale );
+
+			double[] background = FlameImporter.numbers( xml, "background", 3, "0 0 0" );
+			this.background = new Color( background[ 0 ], background[ 1 ], background[ 2 ] );
+
+			if( FlameImporter.numbers( xml, "rotate", 1, "0" )[ 0 ] != 0 )
+			{
+				this.unsupported.add( "rotate" );
+			}
+		}
+
+		/**
+		 * Read an xform: its weight, coefficients, and variations.
+		 */
+		private FlameTransformation xform( XMLStreamReader xml )
+		{
+			double weight = FlameImporter.numbers( xml, "weight", 1, "1" )[ 0 ];
+			double[] coefs = FlameImporter.numbers( xml, "coefs", 6, "1 0 0 1 0 0" );
+			double[] post = FlameImporter.numbers( xml, "post", 6, "1 0 0 1 0 0" );
+
+			if( !Arrays.equals( post, new double[] { 1, 0, 0, 1, 0, 0 } ) )
+			{
+				this.unsupported.add( "post" );
+			}
+
+			double[] variationWeights = new double[ Variation.ALL_VARIATIONS.size() ];
+
+			for( int i = 0; i < xml.getAttributeCount(); i++ )
+			{
+				String attribute = xml.getAttributeLocalName( i );
+				Variation variation = VARIATIONS.get( attribute.toLowerCase() );
+
+				if( variation != null )
+				{
+					variationWeights[ variation.index() ] += FlameImporter.number( attribute, xml.getAttributeValue( i ) );
+				}
+				else if( !XFORM_ATTRIBUTES.contains( attribute ) && !FlameImporter.isParameter( attribute )
+					  && FlameImporter.isUsed( xml.getAttributeValue( i ) ) )
+				{
+					this.unsupported.add( attribute );
+				}
+			}
+
+			AffineTransformation affine = new AffineTransformation(
+				coefs[ 0 ], coefs[ 2 ], coefs[ 4 ],
+				coefs[ 1 ], coefs[ 3 ], coefs[ 5 ]
+			);
+
+			return new FlameTransformation( affine, variationWeights, weight );
+		}
+
+		/**
+		 * Read the colors of a hexadecimal palette, after those already read.
+		 */
+		private void palette( String format, String hexadecimal )
+		{
+			int digits;
+
+			if( format == null || format.equalsIgnoreCase( "RGB" ) )
+			{
+				digits = 6;
+			}
+			else if( format.equalsIgnoreCase( "RGBA" ) )
+			{
+				digits = 8;
+			}
+			else
+			{
+				throw new IllegalArgumentException( "unknown palette format " + format + "." );
+			}
+
+			String colors = hexadecimal.replaceAll( "\\s+", "" );
+
+			if( colors.length() % digits != 0 )
+			{
+				throw new IllegalArgumentException( "the palette must have " + digits + " digits per color." );
+			}
+
+			try
+			{
+				for( int i = 0, index = this.colors.size(); i < colors.length(); i += digits, index++ )
+				{
+					int rgb = Integer.parseInt( colors.substring( i, i + 6 ), 16 );
+
+					this.colors.put( index, new Color( ( rgb >> 16 ) / 255.0, ( rgb >> 8 & 0xFF ) / 255.0, ( rgb & 0xFF ) / 255.0 ) );
+				}
+			}
+			catch( NumberFormatException e )
+			{
+				throw new IllegalArgumentException( "the palette is not hexadecimal." );
+			}
+		}
+
+		/**
+		 * @param xml The reader, at the end of the flame element.
+		 * @return The flame, or null if it cannot be rendered, the error being set.
+		 */
+		FlameFile build( XMLStreamReader xml )
+		{
+			if( this.error != null )
+			{
+				return null;
+			}
+
+			double weights = 0;
+
+			for( FlameTransformation transformation : this.transformations )
+			{
+				weights += transformation.weight();
+			}
+
+			if( weights == 0 )
+			{
+				this.fail( xml, "the flame has no xform of positive weight." );
+
+				return null;
+			}
+
+			InterpolatedPalette palette = this.colors.size() < 2
+										? InterpolatedPalette.RGB_PALETTE
+										: new InterpolatedPalette( new ArrayList<Color>( this.colors.values() ) );
+
+			return new FlameFile( new Flame( this.transformations, MIRROR ), this.frame, palette, this.background );
+		}
+
+	}
+
+	/**
+	 * @param attribute An attribute of an xform, which is not a variation we know.
+	 * @return Whether the attribute is a parameter of a variation, named after it,
+	 * 		   like julian_power for julian, whether or not the variation is used.
+	 */
+	private static boolean isParameter( String attribute )
+	{
+		return attribute.indexOf( '_' ) > 0 && !UNDERSCORED_VARIATIONS.contains( attribute );
+	}
+
+	/**
+	 * @param value The value of an attribute of an xform, which is not a variation we know.
+	 * @return Whether the variation is used, that is if its weight is not 0.
+	 * 		   A value which is not a number cannot be a weight of 0.
+	 */
+	private static boolean isUsed( String value )
+	{
+		try
+		{
+			return Double.parseDouble( value ) != 0;
+		}
+		catch( NumberFormatException e )
+		{
+			return true;
+		}
+	}
+
+	/**
+	 * @param xml The reader, on an element.
+	 * @param attribute The name of an attribute of the element.
+	 * @param count The number of numbers it holds.
+	 * @param byDefault Its value if it is missing, or null if it is required.
+	 * @return The numbers of the attribute.
+	 * @throws IllegalArgumentException If the attribute is missing or does not hold that many numbers.
+	 */
+	private static double[] numbers( XMLStreamReader xml, String attribute, int count, String byDefault )
+	{
+		String value = xml.getAttributeValue( null, attribute );
+
+		if( value == null )
+		{
+			if( byDefault == null )
+			{
+				throw new IllegalArgumentException( "the attribute " + attribute + " of " + xml.getLocalName() + " is missing." );
+			}
+
+			value = byDefault;
+		}
+
+		String[] words = value.trim().split( "\\s+" );
+
+		if( words.length != count )
+		{
+			throw new IllegalArgumentException( "the attribute " + attribute + " must hold " + count + " numbers." );
+		}
+
+		double[] numbers = new double[ count ];
+
+		for( int i = 0; i < count; i++ )
+		{
+			numbers[ i ] = FlameImporter.number( attribute, words[ i ] );
+		}
+
+		return numbers;
+	}
+
+	private static double number( String attribute, String value )
+	{
+		try
+		{
+			return Double.parseDouble( value );
+		}
+		catch( NumberFormatException e )
+		{
+			throw new IllegalArgumentException( "the attribute " + attribute + " holds " + value + ", which is not a number." );
+		}
+	}
+
+}
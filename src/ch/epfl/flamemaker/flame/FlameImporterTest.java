@@ -0,0 +1,162 @@
+package ch.epfl.flamemaker.flame;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedSet;
+
+import org.junit.Test;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.geometry2d.AffineTransformation;
+import ch.epfl.flamemaker.geometry2d.Point;
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+
+public class FlameImporterTest
+{
+	private static final String FLAMES =
+		"<flames name=\"library\">\n"
+		+ "  <flame name=\"first\" size=\"500 400\" center=\"-0.25 0.5\" scale=\"100\" background=\"0 0 0.5\">\n"
+		+ "    <xform weight=\"0.25\" color=\"0\" linear=\"1\" sinusoidal=\"0.1\" coefs=\"1 2 3 4 5 6\"/>\n"
+		+ "    <xform weight=\"0.75\" color=\"1\" swirl=\"0.5\" julian=\"1\" julian_power=\"2\" julian_dist=\"1\" coefs=\"0.5 0 0 0.5 0 0\"/>\n"
+		+ "    <color index=\"0\" rgb=\"255 0 0\"/>\n"
+		+ "    <color index=\"1\" rgb=\"0 0 255\"/>\n"
+		+ "  </flame>\n"
+		+ "  <flame name=\"second\" size=\"100 100\" scale=\"25\" zoom=\"1\" rotate=\"30\">\n"
+		+ "    <xform weight=\"1\" spherical=\"1\" coefs=\"1 0 0 1 0 0\" post=\"1 0 0 1 0.5 0\"/>\n"
+		+ "    <finalxform linear=\"1\" coefs=\"1 0 0 1 0 0\"/>\n"
+		+ "    <palette count=\"2\" format=\"RGB\">\n"
+		+ "      FFFFFF\n"
+		+ "      000000\n"
+		+ "    </palette>\n"
+		+ "  </flame>\n"
+		+ "</flames>\n";
+
+	private static int read( String xml, final List<FlameFile> files, final List<SortedSet<String>> unsupported, final boolean more ) throws IOException
+	{
+		return read( xml, files, unsupported, new ArrayList<String>(), more );
+	}
+
+	private static int read( String xml, final List<FlameFile> files, final List<SortedSet<String>> unsupported, final List<String> errors, final boolean more ) throws IOException
+	{
+		return FlameImporter.read( new ByteArrayInputStream( xml.getBytes( "UTF-8" ) ), new FlameImporter.Listener()
+		{
+			@Override
+			public boolean flameImported( String name, FlameFile file, SortedSet<String> left )
+			{
+				files.add( file );
+				unsupported.add( left );
+
+				return more;
+			}
+
+			@Override
+			public boolean flameFailed( String name, String error )
+			{
+				errors.add( name + ": " + error );
+
+				return more;
+			}
+		} );
+	}
+
+	@Test
+	public void testImport() throws IOException
+	{
+		List<FlameFile> files = new ArrayList<FlameFile>();
+		List<SortedSet<String>> unsupported = new ArrayList<SortedSet<String>>();
+
+		assertEquals( 2, read( FLAMES, files, unsupported, true ) );
+
+		FlameFile first = files.get( 0 );
+		Flame.Builder builder = new Flame.Builder( first.flame() );
+
+		assertEquals( new Rectangle( new Point( -0.25, -0.5 ), 5, 4 ), first.frame() );
+		assertEquals( new Color( 0, 0, 0.5 ), first.background() );
+		assertEquals( Arrays.asList( Color.RED, Color.BLUE ), first.palette().colors() );
+		assertEquals( 2, builder.transformationCount() );
+		assertEquals( new AffineTransformation( 1, 3, 5, 2, 4, 6 ), builder.affineTransformation( 0 ) );
+		assertEquals( 0.1, builder.variationWeight( 0, Variation.ALL_VARIATIONS.get( 1 ) ), 0 );
+		assertEquals( 0.5, builder.variationWeight( 1, Variation.ALL_VARIATIONS.get( 3 ) ), 0 );
+		assertEquals( 0.75, builder.weight( 1 ), 0 );
+		assertEquals( Arrays.asList( "julian" ), new ArrayList<String>( unsupported.get( 0 ) ) );
+
+		FlameFile second = files.get( 1 );
+
+		assertEquals( 2, second.frame().width(), 0 );
+		assertEquals( Arrays.asList( Color.WHITE, Color.BLACK ), second.palette().colors() );
+		assertEquals( Arrays.asList( "finalxform", "post", "rotate" ), new ArrayList<String>( unsupported.get( 1 ) ) );
+	}
+
+	@Test
+	public void testListenerStopsImport() throws IOException
+	{
+		List<FlameFile> files = new ArrayList<FlameFile>();
+
+		assertEquals( 1, read( FLAMES, files, new ArrayList<SortedSet<String>>(), false ) );
+		assertEquals( 1, files.size() );
+	}
+
+	@Test
+	public void testBadFlamesAreSkipped() throws IOException
+	{
+		List<FlameFile> files = new ArrayList<FlameFile>();
+		List<String> errors = new ArrayList<String>();
+		String xml = "<flames>\n"
+			+ "  <flame name=\"size\" scale=\"10\"><xform weight=\"1\" linear=\"1\"/></flame>\n"
+			+ "  <flame name=\"final\" size=\"10 10\" scale=\"10\"><finalxform linear=\"1\"/></flame>\n"
+			+ "  <flame name=\"weights\" size=\"10 10\" scale=\"10\"><xform weight=\"0\" linear=\"1\"/></flame>\n"
+			+ "  <flame name=\"palette\" size=\"10 10\" scale=\"10\"><xform weight=\"1\" linear=\"1\"/><palette>GG0000</palette></flame>\n"
+			+ "  <flame name=\"good\" size=\"10 10\" scale=\"10\"><xform weight=\"1\" linear=\"1\"/></flame>\n"
+			+ "</flames>\n";
+
+		assertEquals( 5, read( xml, files, new ArrayList<SortedSet<String>>(), errors, true ) );
+		assertEquals( 1, files.size() );
+		assertEquals( 4, errors.size() );
+		assertTrue( errors.get( 0 ).startsWith( "size: Line 2: " ) );
+		assertTrue( errors.get( 1 ).startsWith( "final: Line 3: " ) );
+		assertTrue( errors.get( 2 ).startsWith( "weights: Line 4: " ) );
+		assertTrue( errors.get( 3 ).startsWith( "palette: Line 5: " ) );
+	}
+
+	@Test
+	public void testVariationParameters() throws IOException
+	{
+		List<FlameFile> files = new ArrayList<FlameFile>();
+		List<SortedSet<String>> unsupported = new ArrayList<SortedSet<String>>();
+		String xml = "<flame size=\"10 10\" scale=\"10\">"
+			+ "<xform weight=\"1\" linear=\"1\" curl_c1=\"0.5\" linear_scale=\"abc\" waves2_freqx=\"x y\""
+			+ " radial_blur=\"0.5\" pre_blur=\"0\" blob=\"high\" bubble=\"0\"/>"
+			+ "</flame>";
+
+		assertEquals( 1, read( xml, files, unsupported, true ) );
+		assertEquals( Arrays.asList( "blob", "radial_blur" ), new ArrayList<String>( unsupported.get( 0 ) ) );
+	}
+
+	@Test
+	public void testOrientation() throws IOException
+	{
+		List<FlameFile> files = new ArrayList<FlameFile>();
+
+		// Every point goes to (0.5, 0.5), which is below and right of the center in flam3.
+		read( "<flame size=\"10 10\" scale=\"5\"><xform weight=\"1\" linear=\"1\" coefs=\"0 0 0 0 0.5 0.5\"/></flame>",
+			files, new ArrayList<SortedSet<String>>(), true );
+
+		FlameFile file = files.get( 0 );
+		FlameAccumulator accumulator = file.flame().compute( file.frame(), 10, 10, 1 );
+
+		// The row 0 of the accumulator is the bottom of the image.
+		assertTrue( accumulator.intensity( 7, 2 ) > 0 );
+		assertEquals( 0, accumulator.intensity( 7, 7 ), 0 );
+	}
+
+	@Test( expected = IOException.class )
+	public void testMalformedXML() throws IOException
+	{
+		read( "<flame size=\"10 10\" scale=\"10\"><xform weight=\"1\"", new ArrayList<FlameFile>(), new ArrayList<SortedSet<String>>(), true );
+	}
+}
@@ -1,9 +1,8 @@
 package ch.epfl.flamemaker.flame;
 
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 import ch.epfl.flamemaker.color.Color;
 import ch.epfl.flamemaker.color.InterpolatedPalette;
@@ -16,19 +15,19 @@ import ch.epfl.flamemaker.util.PPMWriter;
 public class FlamePPMMaker
 {
 
-	public static void _main( String[] args )
-	{
-		// FlamePPMMaker.barnsley();
-		FlamePPMMaker.sharkfin();
-		FlamePPMMaker.turbulence();
-		// FlamePPMMaker.testBuilder();
-	}
+	/**
+	 * The frames in which the fixture fractals are drawn.
+	 */
+	static final Rectangle SHARKFIN_FRAME = new Rectangle( new Point( -0.25, 0 ), 5, 4 );
+	static final Rectangle TURBULENCE_FRAME = new Rectangle( new Point( 0.1, 0.1 ), 3, 3 );
+	static final Rectangle BARNSLEY_FRAME = new Rectangle( new Point( 0, 4.5 ), 6, 10 );
 
-	private static void sharkfin()
+	/**
+	 * @return The Sharkfin fractal.
+	 */
+	static Flame sharkfinFlame()
 	{
-		System.out.print( "Generating Sharkfin fractal..." );
-		
-		List<FlameTransformation> transformations = Arrays.asList(
+		return new Flame( Arrays.asList(
 			new FlameTransformation(
                 new AffineTransformation(
                 	-0.4113504, -0.7124804, -0.4,
@@ -50,30 +49,15 @@ public class FlamePPMMaker
                 ),
                 new double[] { 1, 0, 0, 0, 0, 0 }
             )
-        );
-        
-		Flame flame = new Flame( transformations );
-        Rectangle frame = new Rectangle( new Point( -0.25, 0 ), 5, 4 );
-        FlameAccumulator accumulator = flame.compute( frame, 500, 400, 50 );
-        InterpolatedPalette palette = InterpolatedPalette.RGB_PALETTE;
-        
-        PPMWriter writer;
-        try {
-            writer = new PPMWriter( "shark-fin.ppm" );
-            writer.printAccumulator( accumulator, palette, Color.BLACK );
-        }
-        catch( FileNotFoundException e ) {
-            e.printStackTrace();
-        }
-        
-        System.out.println( " Done." );
+        ) );
 	}
 	
-	private static void turbulence()
+	/**
+	 * @return The Turbulence fractal.
+	 */
+	static Flame turbulenceFlame()
 	{
-		System.out.print( "Generating Turbulence fractal..." );
-		
-		List<FlameTransformation> transformations = Arrays.asList(
+		return new Flame( Arrays.asList(
 			new FlameTransformation(
                 new AffineTransformation(
                 	0.7124807, -0.4113509, -0.3,
@@ -95,10 +79,81 @@ public class FlamePPMMaker
                 ),
                 new double[] { 1, 0, 0, 0, 0, 0 }
             )
-        );
+        ) );
+	}
+	
+	/**
+	 * @return The Barnsley fern, drawn as a Flame fractal.
+	 */
+	static Flame barnsleyFlame()
+	{
+		return new Flame( Arrays.asList(
+        	new FlameTransformation(
+                new AffineTransformation(
+                    0, 0,   0,
+                    0, 0.16, 0
+                ),
+                new double[] { 1, 0, 0, 0, 0, 0 }
+            ),
+            new FlameTransformation(
+                new AffineTransformation(
+                    0.2, -0.26, 0,
+                    0.23, 0.22, 1.6
+                ),
+                new double[] { 1, 0, 0, 0, 0, 0 }
+            ),
+            new FlameTransformation(
+                new AffineTransformation(
+                    -0.15, 0.28, 0,
+                    0.26, 0.24, 0.44
+                ),
+                new double[] { 1, 0, 0, 0, 0, 0 }
+           ),
+           new FlameTransformation(
+                new AffineTransformation(
+                    0.85,  0.04, 0,
+                    -0.04, 0.85, 1.6
+                ),
+                new double[] { 1, 0, 0, 0, 0, 0 }
+           )
+        ) );
+	}
+
+	public static void _main( String[] args )
+	{
+		// FlamePPMMaker.barnsley();
+		FlamePPMMaker.sharkfin();
+		FlamePPMMaker.turbulence();
+		// FlamePPMMaker.testBuilder();
+	}
+
+	private static void sharkfin()
+	{
+		System.out.print( "Generating Sharkfin fractal..." );
+		
+		Flame flame = FlamePPMMaker.sharkfinFlame();
+        Rectangle frame = FlamePPMMaker.SHARKFIN_FRAME;
+        FlameAccumulator accumulator = flame.compute( frame, 500, 400, 50 );
+        InterpolatedPalette palette = InterpolatedPalette.RGB_PALETTE;
         
-		Flame flame = new Flame( transformations );
-        Rectangle frame = new Rectangle( new Point( 0.1, 0.1 ), 3, 3 );
+        PPMWriter writer;
+        try {
+            writer = new PPMWriter( "shark-fin.ppm" );
+            writer.printAccumulator( accumulator, palette, Color.BLACK );
+        }
+        catch( IOException e ) {
+            e.printStackTrace();
+        }
+        
+        System.out.println( " Done." );
+	}
+	
+	private static void turbulence()
+	{
+		System.out.print( "Generating Turbulence fractal..." );
+		
+		Flame flame = FlamePPMMaker.turbulenceFlame();
+        Rectangle frame = FlamePPMMaker.TURBULENCE_FRAME;
         FlameAccumulator accumulator = flame.compute( frame, 500, 500, 50 );
         InterpolatedPalette palette = InterpolatedPalette.RGB_PALETTE;
         
@@ -107,7 +162,7 @@ public class FlamePPMMaker
             writer = new PPMWriter( "turbulence.ppm" );
             writer.printAccumulator( accumulator, palette, Color.BLACK );
         }
-        catch( FileNotFoundException e ) {
+        catch( IOException e ) {
             e.printStackTrace();
         }
         System.out.println( " Done." );
@@ -154,7 +209,7 @@ public class FlamePPMMaker
             writer = new PPMWriter( "resources/build-sharkfin.ppm" );
             writer.printAccumulator( accumulator, palette, Color.BLACK );
         }
-        catch( FileNotFoundException e ) {
+        catch( IOException e ) {
             e.printStackTrace();
         }
     }
@@ -164,39 +219,8 @@ public class FlamePPMMaker
     {
 		System.out.print( "Generating Barnsely fractal..." );
 		
-        List<FlameTransformation> transformations = Arrays.asList(
-        	new FlameTransformation(
-                new AffineTransformation(
-                    0, 0,   0,
-                    0, 0.16, 0
-                ),
-                new double[] { 1, 0, 0, 0, 0, 0 }
-            ),
-            new FlameTransformation(
-                new AffineTransformation(
-                    0.2, -0.26, 0,
-                    0.23, 0.22, 1.6
-                ),
-                new double[] { 1, 0, 0, 0, 0, 0 }
-            ),
-            new FlameTransformation(
-                new AffineTransformation(
-                    -0.15, 0.28, 0,
-                    0.26, 0.24, 0.44
-                ),
-                new double[] { 1, 0, 0, 0, 0, 0 }
-           ),
-           new FlameTransformation(
-                new AffineTransformation(
-                    0.85,  0.04, 0,
-                    -0.04, 0.85, 1.6
-                ),
-                new double[] { 1, 0, 0, 0, 0, 0 }
-           )
-        );
-        
-        Flame flame = new Flame( transformations );
-        Rectangle frame = new Rectangle( new Point( 0, 4.5 ), 6, 10 );
+		Flame flame = FlamePPMMaker.barnsleyFlame();
+        Rectangle frame = FlamePPMMaker.BARNSLEY_FRAME;
         
         FlameAccumulator accumulator = flame.compute( frame, 120, 200, 150 );
         
@@ -205,7 +229,7 @@ public class FlamePPMMaker
             writer = new PGMWriter( "resources/barnsley.pgm" );
             writer.printAccumulator( accumulator );
         }
-        catch( FileNotFoundException e ) {
+        catch( IOException e ) {
             e.printStackTrace();
         }
         
@@ -1,6 +1,10 @@
 package ch.epfl.flamemaker.flame;
 
+import java.util.Arrays;
+
 import ch.epfl.flamemaker.geometry2d.AffineTransformation;
+import ch.epfl.flamemaker.geometry2d.InPlaceTransformation;
+import ch.epfl.flamemaker.geometry2d.MutablePoint;
 import ch.epfl.flamemaker.geometry2d.Point;
 import ch.epfl.flamemaker.geometry2d.Transformation;
 
@@ -12,11 +16,27 @@ import ch.epfl.flamemaker.geometry2d.Transformation;
  * @author Romain Ruetschi #218357
  * @author Arthur Passuello #229261
  */
-public class FlameTransformation implements Transformation
+public class FlameTransformation implements InPlaceTransformation
 {
 	
-	private AffineTransformation affineTransformation;
-	private double[] variationWeight;
+	private final AffineTransformation affineTransformation;
+	private final double[] variationWeight;
+	
+	/**
+	 * How often this transformation is chosen, relatively to the others of its flame.
+	 */
+	private final double weight;
+	
+	/**
+	 * The variations whose weight isn't zero, compiled at creation
+	 * so that applying the transformation only costs as much as its active variations.
+	 */
+	private final Variation[] activeVariations;
+	
+	/**
+	 * The weights of the active variations, in the same order.
+	 */
+	private final double[] activeWeights;
 
 	/**
 	 * @return The identity transformation
@@ -30,13 +50,30 @@ public class FlameTransformation implements Transformation
 	}
 	
 	/**
-	 * Create a new flame transformation with the given affine transformation and variations weights.
+	 * Create a new flame transformation with the given affine transformation and variations weights,
+	 * chosen as often as the other transformations of its flame.
 	 * 
 	 * @param affineTransformation The affine transformation,
 	 * @param variationWeights The weights of the variations,
 	 * 						   in the same order as they are defined in {@link Variation}.
 	 */
 	public FlameTransformation( AffineTransformation affineTransformation, double[] variationWeights )
+	{
+		this( affineTransformation, variationWeights, 1 );
+	}
+	
+	/**
+	 * Create a new flame transformation with the given affine transformation, variations weights,
+	 * and selection weight.
+	 * 
+	 * @param affineTransformation The affine transformation,
+	 * @param variationWeights The weights of the variations,
+	 * 						   in the same order as they are defined in {@link Variation}.
+	 * @param weight How often the transformation is chosen, relatively to the other
+	 * 				 transformations of its flame: a transformation of weight 2 is chosen
+	 * 				 twice as often as one of weight 1.
+	 */
+	public FlameTransformation( AffineTransformation affineTransformation, double[] variationWeights, double weight )
 	{
 		if( variationWeights.length != Variation.ALL_VARIATIONS.size() )
 		{
@@ -45,12 +82,68 @@ public class FlameTransformation implements Transformation
 			);
 		}
 		
+		if( !( weight >= 0 ) || Double.isInfinite( weight ) )
+		{
+			throw new IllegalArgumentException( "weight must be positive and finite." );
+		}
+		
 		this.affineTransformation = affineTransformation;
 		this.variationWeight = variationWeights.clone();
+		this.weight = weight;
+		
+		int active = 0;
+		
+		for( double variationWeight : variationWeights )
+		{
+			if( variationWeight != 0.0 )
+			{
+				active++;
+			}
+		}
+		
+		this.activeVariations = new Variation[ active ];
+		this.activeWeights = new double[ active ];
+		
+		// Keep the variations in the order in which they are defined,
+		// so that their contributions are summed in the same order as before.
+		for( int j = 0, k = 0; j < this.variationWeight.length; j++ )
+		{
+			if( this.variationWeight[ j ] != 0.0 )
+			{
+				this.activeVariations[ k ] = Variation.ALL_VARIATIONS.get( j );
+				this.activeWeights[ k ] = this.variationWeight[ j ];
+				k++;
+			}
+		}
+	}
+
+	/**
+	 * @return How often this transformation is chosen, relatively to the others of its flame.
+	 */
+	public double weight()
+	{
+		return this.weight;
+	}
+
+	/**
+	 * @return The affine transformation of this transformation.
+	 */
+	AffineTransformation affineTransformation()
+	{
+		return this.affineTransformation;
+	}
+
+	/**
+	 * @return The weights of the variations, in the same order as they are defined
+	 * 		   in {@link Variation}, which must not be modified.
+	 */
+	double[] variationWeights()
+	{
+		return this.variationWeight;
 	}
 
 	/**
-	 * Transform the given point by applying every known {@link Variation}
+	 * Transform the given point by applying every active {@link Variation}
 	 * to it, weighted by their weight, and composed with this transformation's
 	 * affine transformation.
 	 * 
@@ -59,26 +152,66 @@ public class FlameTransformation implements Transformation
 	@Override
 	public Point transformPoint( Point p )
 	{
-		Point r = Point.ORIGIN;
+		MutablePoint q = new MutablePoint( p );
+		this.transformInPlace( q );
+		
+		return q.toPoint();
+	}
+	
+	/**
+	 * Same as {@link #transformPoint( Point )}, but in place.
+	 * The affine transformation is only applied once, and its result
+	 * fed to each active variation in turn.
+	 * 
+	 * @see InPlaceTransformation#transformInPlace( MutablePoint )
+	 */
+	@Override
+	public void transformInPlace( MutablePoint p )
+	{
+		this.affineTransformation.transformInPlace( p );
+		
+		double gx = p.x();
+		double gy = p.y();
+		double rx = 0.0;
+		double ry = 0.0;
 		
-		for( int j = 0; j < Variation.ALL_VARIATIONS.size(); j++ )
+		for( int k = 0; k < this.activeVariations.length; k++ )
 		{
-			double weight = this.variationWeight[ j ];
-			
-			// Don't apply this transformation if its weight is zero.
-			if( weight == 0.0 )
-			{
-				continue;
-			}
-			
-			Point g = this.affineTransformation.transformPoint( p );
-			Point v = Variation.ALL_VARIATIONS.get( j ).transformPoint( g );
-			Point f = v.scale( weight );
+			p.set( gx, gy );
+			this.activeVariations[ k ].transformInPlace( p );
 			
-			r = r.add( f );
+			rx += p.x() * this.activeWeights[ k ];
+			ry += p.y() * this.activeWeights[ k ];
 		}
 		
-		return r;
+		p.set( rx, ry );
+	}
+	
+	/**
+	 * Two Flame transformations are equal if they have the same
+	 * affine transformation, the same variations weights, and the same weight.
+	 */
+	@Override
+	public boolean equals( Object other )
+	{
+		if( !( other instanceof FlameTransformation ) )
+		{
+			return false;
+		}
+		
+		FlameTransformation that = ( FlameTransformation )other;
+		
+		return this.affineTransformation.equals( that.affineTransformation )
+			&& Arrays.equals( this.variationWeight, that.variationWeight )
+			&& Double.compare( this.weight, that.weight ) == 0;
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		int hash = 31 * this.affineTransformation.hashCode() + Arrays.hashCode( this.variationWeight );
+		
+		return 31 * hash + Double.valueOf( this.weight ).hashCode();
 	}
 	
 	/**
@@ -87,7 +220,7 @@ public class FlameTransformation implements Transformation
 	@Override
 	public FlameTransformation clone()
 	{
-		return new FlameTransformation( this.affineTransformation, this.variationWeight );
+		return new FlameTransformation( this.affineTransformation, this.variationWeight, this.weight );
 	}
 	
 	/**
@@ -96,11 +229,16 @@ public class FlameTransformation implements Transformation
 	public static class Builder
 	{
 		
+		private AffineTransformation affineTransformation;
+		private double[] variationWeight;
+		private double weight;
+		
 		/**
-		 * The Flame transformation we'll use as a basis.
+		 * Create a builder holding the same affine transformation
+		 * and variations weights as the given transformation.
+		 * 
+		 * @param transformation The Flame transformation to use as a basis.
 		 */
-		private FlameTransformation transformation;
-		
 		public Builder( FlameTransformation transformation )
 		{
 			if( transformation == null )
@@ -108,7 +246,9 @@ public class FlameTransformation implements Transformation
 				throw new IllegalArgumentException( "transformation must not be null" );
 			}
 			
-			this.transformation = ( FlameTransformation )transformation.clone();
+			this.affineTransformation = transformation.affineTransformation.clone();
+			this.variationWeight = transformation.variationWeight.clone();
+			this.weight = transformation.weight;
 		}
 		
 		/**
@@ -116,7 +256,7 @@ public class FlameTransformation implements Transformation
 		 */
 		public AffineTransformation affineTransformation()
 		{
-			return this.transformation.affineTransformation;
+			return this.affineTransformation;
 		}
 
 		/**
@@ -125,7 +265,7 @@ public class FlameTransformation implements Transformation
 		 */
 		public void setAffineTransformation( AffineTransformation affineTransformation )
 		{
-			this.transformation.affineTransformation = affineTransformation.clone();
+			this.affineTransformation = affineTransformation.clone();
 		}
 
 		/**
@@ -135,7 +275,7 @@ public class FlameTransformation implements Transformation
 		 */
 		public double variationWeight( Variation variation )
 		{
-			return this.transformation.variationWeight[ variation.index() ];
+			return this.variationWeight[ variation.index() ];
 		}
 
 		/**
@@ -145,17 +285,40 @@ public class FlameTransformation implements Transformation
 		 */
 		public void setVariationWeight( Variation variation, double weight )
 		{
-			this.transformation.variationWeight[ variation.index() ] = weight;
+			this.variationWeight[ variation.index() ] = weight;
+		}
+		
+		/**
+		 * @return How often the transformation is chosen, relatively to the others of its flame.
+		 */
+		public double weight()
+		{
+			return this.weight;
+		}
+
+		/**
+		 * Set how often the transformation is chosen, relatively to the others of its flame.
+		 * @param weight
+		 */
+		public void setWeight( double weight )
+		{
+			if( !( weight >= 0 ) || Double.isInfinite( weight ) )
+			{
+				throw new IllegalArgumentException( "weight must be positive and finite." );
+			}
+			
+			this.weight = weight;
 		}
 		
 		/**
-		 * Build the transformation
+		 * Build the transformation, compiling its active variations.
+		 * Transformations previously built are not affected by later modifications.
 		 * 
 		 * @return the Flame transformation just built
 		 */
 		public FlameTransformation build()
 		{
-			return this.transformation;
+			return new FlameTransformation( this.affineTransformation, this.variationWeight, this.weight );
 		}
 		
 	}
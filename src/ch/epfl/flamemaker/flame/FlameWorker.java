@@ -0,0 +1,324 @@
+package ch.epfl.flamemaker.flame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import ch.epfl.flamemaker.geometry2d.AffineTransformation;
+import ch.epfl.flamemaker.geometry2d.MutablePoint;
+import ch.epfl.flamemaker.util.AliasTable;
+
+/**
+ * Play the chaos game on a share of a Flame's iterations,
+ * with its own random numbers stream and its own accumulator builder.
+ *
+ * Several workers can thus run concurrently on the same Flame,
+ * their builders being merged afterwards. A worker keeps its state
+ * between two calls to {@link #iterateUntil( long )}, so that its
+ * share can be drawn in several passes.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+final class FlameWorker
+{
+
+	/**
+	 * The number of points computed but not drawn, to kick the computation off.
+	 */
+	static final int WARM_UP_ITERATIONS = 20;
+
+	/**
+	 * The number of points drawn between two checks of whether the computation should stop.
+	 */
+	private static final int STOP_CHECK_INTERVAL = 1 << 16;
+
+	private final FlameComputation computation;
+	private final FlameTransformation[] transformations;
+	private final double[] colorIndexes;
+
+	/**
+	 * The transformation applied to the points before they are drawn, or null for none,
+	 * and the point it is applied to, so that the current point is left untouched.
+	 */
+	private final AffineTransformation finalTransformation;
+	private final MutablePoint drawn = new MutablePoint( 0, 0 );
+
+	/**
+	 * The table to choose the transformations by their weight.
+	 */
+	private final AliasTable selection;
+	private final Random random;
+	private final FlameAccumulator.Builder builder;
+
+	/**
+	 * The current point of the chaos game.
+	 */
+	private final MutablePoint p = new MutablePoint( 0, 0 );
+
+	/**
+	 * The current color index of the chaos game.
+	 */
+	private double c = 0.0;
+
+	/**
+	 * The number of points drawn so far.
+	 */
+	private long iterations = 0;
+
+	/**
+	 * The number of times each transformation has been chosen, the number of points
+	 * in the frame and of points which escaped to NaN or infinity, since they were
+	 * last reported. They are only counted once {@link #countMetrics()} has been called.
+	 */
+	private long[] selections;
+	private long pointsInFrame = 0;
+	private long escapes = 0;
+
+	/**
+	 * The number of points drawn when the metrics were last reported.
+	 */
+	private long reportedIterations = 0;
+
+	/**
+	 * Create a new worker, and compute the points that it won't draw.
+	 *
+	 * @param computation The computation this worker is part of.
+	 * @param transformations The Flame transformations to apply.
+	 * @param finalTransformation The transformation applied to the points before they are drawn, or null for none.
+	 * @param builder The builder in which the points will be accumulated.
+	 * @param random The random numbers stream of this worker, used by no other worker.
+	 */
+	FlameWorker( FlameComputation computation, List<FlameTransformation> transformations, AffineTransformation finalTransformation, FlameAccumulator.Builder builder, Random random )
+	{
+		this( computation, transformations, finalTransformation, builder, random, true );
+	}
+
+	/**
+	 * @param warmUp Whether to compute the points that won't be drawn,
+	 * 				 which a worker restored from its state has already done.
+	 */
+	private FlameWorker( FlameComputation computation, List<FlameTransformation> transformations, AffineTransformation finalTransformation, FlameAccumulator.Builder builder, Random random, boolean warmUp )
+	{
+		this.computation = computation;
+		this.transformations = transformations.toArray( new FlameTransformation[ transformations.size() ] );
+		this.finalTransformation = finalTransformation;
+		this.colorIndexes = Flame.colorIndexes( this.transformations.length );
+		this.selection = FlameWorker.selection( this.transformations );
+		this.random = random;
+		this.builder = builder;
+
+		if( warmUp )
+		{
+			for( int j = 0; j < WARM_UP_ITERATIONS; j++ )
+			{
+				this.step();
+			}
+		}
+	}
+
+	/**
+	 * @param transformations The Flame transformations.
+	 * @return The table to choose them by their weight.
+	 */
+	private static AliasTable selection( FlameTransformation[] transformations )
+	{
+		double[] weights = new double[ transformations.length ];
+
+		for( int i = 0; i < transformations.length; i++ )
+		{
+			weights[ i ] = transformations[ i ].weight();
+		}
+
+		return new AliasTable( weights );
+	}
+
+	/**
+	 * Create a worker in the state saved by {@link #writeState( DataOutputStream )},
+	 * which goes on drawing the points exactly where the saved worker was.
+	 *
+	 * @param computation The computation this worker is part of.
+	 * @param transformations The Flame transformations to apply.
+	 * @param finalTransformation The transformation applied to the points before they are drawn, or null for none.
+	 * @param builder An empty builder, in which the points drawn so far are restored.
+	 * @param data The stream to read the state from.
+	 * @return The worker.
+	 * @throws IOException If the state cannot be read.
+	 */
+	static FlameWorker readState( FlameComputation computation, List<FlameTransformation> transformations, AffineTransformation finalTransformation, FlameAccumulator.Builder builder, DataInputStream data ) throws IOException
+	{
+		byte[] random = new byte[ data.readInt() ];
+		data.readFully( random );
+
+		ObjectInputStream objects = new ObjectInputStream( new ByteArrayInputStream( random ) );
+		FlameWorker worker;
+
+		try
+		{
+			worker = new FlameWorker( computation, transformations, finalTransformation, builder, ( Random )objects.readObject(), false );
+		}
+		catch( ClassNotFoundException e )
+		{
+			throw new IOException( "The state of the random numbers stream cannot be read.", e );
+		}
+		finally
+		{
+			objects.close();
+		}
+
+		worker.p.set( data.readDouble(), data.readDouble() );
+		worker.c = data.readDouble();
+		worker.iterations = data.readLong();
+		builder.readState( data );
+
+		return worker;
+	}
+
+	/**
+	 * Save the state of this worker: its random numbers stream, the current point
+	 * and color index, the number of points drawn, and the points themselves.
+	 *
+	 * @param data The stream to write the state to.
+	 * @throws IOException
+	 */
+	void writeState( DataOutputStream data ) throws IOException
+	{
+		ByteArrayOutputStream random = new ByteArrayOutputStream();
+		ObjectOutputStream objects = new ObjectOutputStream( random );
+		objects.writeObject( this.random );
+		objects.close();
+
+		data.writeInt( random.size() );
+		random.writeTo( data );
+		data.writeDouble( this.p.x() );
+		data.writeDouble( this.p.y() );
+		data.writeDouble( this.c );
+		data.writeLong( this.iterations );
+		this.builder.writeState( data );
+	}
+
+	/**
+	 * @return The builder holding the points drawn by this worker.
+	 */
+	FlameAccumulator.Builder builder()
+	{
+		return this.builder;
+	}
+
+	/**
+	 * @return The number of points drawn by this worker so far.
+	 */
+	long iterations()
+	{
+		return this.iterations;
+	}
+
+	/**
+	 * Start counting the metrics of the points drawn from now on.
+	 */
+	void countMetrics()
+	{
+		this.selections = new long[ this.transformations.length ];
+		this.reportedIterations = this.iterations;
+	}
+
+	/**
+	 * Add the metrics counted since the last report to the given ones, and reset them.
+	 *
+	 * @param metrics The metrics to report to.
+	 */
+	void reportMetrics( RenderMetrics metrics )
+	{
+		metrics.addPoints( this.iterations - this.reportedIterations, this.pointsInFrame, this.escapes, this.selections );
+
+		this.reportedIterations = this.iterations;
+		this.pointsInFrame = 0;
+		this.escapes = 0;
+		Arrays.fill( this.selections, 0 );
+	}
+
+	/**
+	 * Draw points until this worker has drawn the given number of points in total,
+	 * or until the computation is stopped.
+	 *
+	 * @param target The total number of points to have drawn.
+	 */
+	void iterateUntil( long target )
+	{
+		long j = this.iterations;
+
+		while( j < target && !this.computation.isStopped() )
+		{
+			long end = Math.min( target, j + STOP_CHECK_INTERVAL );
+
+			if( this.selections == null )
+			{
+				for( ; j < end; j++ )
+				{
+					this.step();
+					this.draw();
+				}
+			}
+			else
+			{
+				for( ; j < end; j++ )
+				{
+					this.selections[ this.step() ]++;
+
+					if( this.draw() )
+					{
+						this.pointsInFrame++;
+					}
+					else if( Double.isNaN( this.p.x() ) || Double.isNaN( this.p.y() )
+						|| Double.isInfinite( this.p.x() ) || Double.isInfinite( this.p.y() ) )
+					{
+						this.escapes++;
+					}
+				}
+			}
+
+			this.iterations = j;
+		}
+	}
+
+	/**
+	 * Draw the current point, after its final transformation if there is one.
+	 *
+	 * @return Whether the point is in the frame, and has thus been drawn.
+	 */
+	private boolean draw()
+	{
+		if( this.finalTransformation == null )
+		{
+			return this.builder.hit( this.p.x(), this.p.y(), this.c );
+		}
+
+		this.drawn.set( this.p.x(), this.p.y() );
+		this.finalTransformation.transformInPlace( this.drawn );
+
+		return this.builder.hit( this.drawn.x(), this.drawn.y(), this.c );
+	}
+
+	/**
+	 * Apply a transformation, randomly chosen by its weight, to the current point,
+	 * and update the current color index accordingly.
+	 *
+	 * @return The index of the transformation applied.
+	 */
+	private int step()
+	{
+		int i = this.selection.next( this.random );
+		this.transformations[ i ].transformInPlace( this.p );
+		this.c = ( this.colorIndexes[ i ] + this.c ) / 2.0;
+
+		return i;
+	}
+
+}
@@ -0,0 +1,62 @@
+package ch.epfl.flamemaker.flame;
+
+/**
+ * The storage of an accumulator: the hit count and the sum of the color indexes
+ * of each pixel, row after row, the pixel at ( x, y ) being at index y * width + x.
+ *
+ * Hit counts are read as doubles, since they become fractional once filtered
+ * by a {@link DensityEstimator}, but are always integers while points are hit.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+abstract class Histogram
+{
+
+	/**
+	 * @return The number of pixels.
+	 */
+	abstract long size();
+
+	/**
+	 * @param i The index of a pixel.
+	 * @return The number of times the pixel has been hit.
+	 */
+	abstract double hitCount( long i );
+
+	/**
+	 * @param i The index of a pixel.
+	 * @return The sum of the color indexes the pixel has been hit with.
+	 */
+	abstract double colorIndexSum( long i );
+
+	/**
+	 * Hit a pixel once, with the given color index.
+	 *
+	 * @param i The index of the pixel.
+	 * @param c The color index.
+	 * @return The new hit count of the pixel.
+	 */
+	abstract int hit( long i, double c );
+
+	/**
+	 * Hit a pixel several times at once.
+	 *
+	 * @param i The index of the pixel.
+	 * @param hitCount The number of hits.
+	 * @param colorIndexSum The sum of the color indexes of these hits.
+	 * @return The new hit count of the pixel.
+	 */
+	abstract int add( long i, int hitCount, double colorIndexSum );
+
+	/**
+	 * @return The number of bytes the values of the histogram take, on the heap or mapped.
+	 */
+	abstract long bytes();
+
+	/**
+	 * @return A new histogram, stored the same way, holding the same values.
+	 */
+	abstract Histogram copy();
+
+}
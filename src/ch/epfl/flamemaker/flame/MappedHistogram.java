@@ -0,0 +1,162 @@
+package ch.epfl.flamemaker.flame;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A histogram stored in a temporary file, mapped in memory, so that its size
+ * is not limited by the heap: the operating system loads and writes back the
+ * parts of the file that are used, as it does for any other mapped file.
+ *
+ * Since a single mapping cannot exceed 2 GB, the file is mapped in segments
+ * of {@link #SEGMENT_SIZE} pixels. The hit counts are stored first,
+ * followed by the sums of the color indexes.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+final class MappedHistogram extends Histogram
+{
+
+	private static final int SEGMENT_SHIFT = 27;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+	private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+	private final File directory;
+	private final long size;
+	private final IntBuffer[] hitCount;
+	private final DoubleBuffer[] colorIndexSum;
+
+	/**
+	 * Create an empty histogram, in a new temporary file.
+	 *
+	 * The file is deleted as soon as it is mapped, or when the virtual machine exits
+	 * if the system doesn't allow it, and its space is reclaimed once the histogram
+	 * has been garbage collected.
+	 *
+	 * @param directory The directory in which to create the file,
+	 * 					or null for the default temporary directory.
+	 * @param size The number of pixels.
+	 * @throws IOException If the file cannot be created or mapped.
+	 */
+	MappedHistogram( File directory, long size ) throws IOException
+	{
+		int segments = ( int )( ( size + SEGMENT_MASK ) >> SEGMENT_SHIFT );
+
+		this.directory = directory;
+		this.size = size;
+		this.hitCount = new IntBuffer[ segments ];
+		this.colorIndexSum = new DoubleBuffer[ segments ];
+
+		File file = File.createTempFile( "flame", ".histogram", directory );
+		RandomAccessFile data = new RandomAccessFile( file, "rw" );
+
+		try
+		{
+			// The file is filled with zeros, without writing them on most file systems.
+			data.setLength( 12 * size );
+
+			FileChannel channel = data.getChannel();
+
+			for( int s = 0; s < segments; s++ )
+			{
+				long first = ( long )s << SEGMENT_SHIFT;
+				long length = Math.min( SEGMENT_SIZE, size - first );
+
+				this.hitCount[ s ] = channel.map( FileChannel.MapMode.READ_WRITE, 4 * first, 4 * length )
+					.order( ByteOrder.nativeOrder() ).asIntBuffer();
+				this.colorIndexSum[ s ] = channel.map( FileChannel.MapMode.READ_WRITE, 4 * size + 8 * first, 8 * length )
+					.order( ByteOrder.nativeOrder() ).asDoubleBuffer();
+			}
+		}
+		finally
+		{
+			// The mappings stay valid once the file is closed.
+			data.close();
+
+			if( !file.delete() )
+			{
+				file.deleteOnExit();
+			}
+		}
+	}
+
+	@Override
+	long size()
+	{
+		return this.size;
+	}
+
+	@Override
+	double hitCount( long i )
+	{
+		return this.hitCount[ ( int )( i >> SEGMENT_SHIFT ) ].get( ( int )( i & SEGMENT_MASK ) );
+	}
+
+	@Override
+	double colorIndexSum( long i )
+	{
+		return this.colorIndexSum[ ( int )( i >> SEGMENT_SHIFT ) ].get( ( int )( i & SEGMENT_MASK ) );
+	}
+
+	@Override
+	int hit( long i, double c )
+	{
+		return this.add( i, 1, c );
+	}
+
+	@Override
+	int add( long i, int hitCount, double colorIndexSum )
+	{
+		int s = ( int )( i >> SEGMENT_SHIFT );
+		int j = ( int )( i & SEGMENT_MASK );
+
+		DoubleBuffer sums = this.colorIndexSum[ s ];
+		sums.put( j, sums.get( j ) + colorIndexSum );
+
+		IntBuffer counts = this.hitCount[ s ];
+		int count = counts.get( j ) + hitCount;
+		counts.put( j, count );
+
+		return count;
+	}
+
+	@Override
+	long bytes()
+	{
+		return 12 * this.size;
+	}
+
+	/**
+	 * @throws IllegalStateException If the file of the copy cannot be created.
+	 */
+	@Override
+	Histogram copy()
+	{
+		MappedHistogram copy;
+
+		try
+		{
+			copy = new MappedHistogram( this.directory, this.size );
+		}
+		catch( IOException e )
+		{
+			throw new IllegalStateException( "The histogram could not be copied.", e );
+		}
+
+		for( int s = 0; s < this.hitCount.length; s++ )
+		{
+			// Only absolute accesses are used, so the positions of all the buffers are 0.
+			copy.hitCount[ s ].duplicate().put( this.hitCount[ s ].duplicate() );
+			copy.colorIndexSum[ s ].duplicate().put( this.colorIndexSum[ s ].duplicate() );
+		}
+
+		return copy;
+	}
+
+}
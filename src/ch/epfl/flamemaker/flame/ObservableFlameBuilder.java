@@ -80,6 +80,24 @@ public class ObservableFlameBuilder extends Observable
 		this.notifyObservers();
 	}
 	
+	/**
+	 * @see Flame.Builder#weight(int)
+	 */
+	public double weight( int index )
+	{
+		return this.builder.weight( index );
+	}
+
+	/**
+	 * @see Flame.Builder#setWeight(int, double)
+	 */
+	public void setWeight( int index, double weight )
+	{
+		this.builder.setWeight( index, weight );
+		this.setChanged();
+		this.notifyObservers();
+	}
+	
 	/**
 	 * @see Flame.Builder#removeTransformation(int)
 	 */
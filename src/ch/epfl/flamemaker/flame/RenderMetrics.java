@@ -0,0 +1,208 @@
+package ch.epfl.flamemaker.flame;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Statistics of a rendering, collected by the computations and writers it is given to,
+ * to find out where the time goes when a rendering is slow.
+ *
+ * They count the points drawn, those which fell out of the frame, and those which escaped
+ * to NaN or infinity, how often each transformation has been chosen, the time spent
+ * in each phase, and the largest amount of memory taken by histograms at once.
+ *
+ * Collecting the statistics only costs a few counters per point. Without metrics,
+ * the computations and writers don't collect anything.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+public final class RenderMetrics
+{
+
+	/**
+	 * The names of the phases timed by the computations and writers.
+	 */
+	public static final String ITERATE = "iterate";
+	public static final String MERGE = "merge";
+	public static final String FILTER = "filter";
+	public static final String CHECKPOINT = "checkpoint";
+	public static final String COLORIZE = "colorize";
+	public static final String ENCODE = "encode";
+	public static final String WRITE = "write";
+
+	private long iterations = 0;
+	private long pointsInFrame = 0;
+	private long escapes = 0;
+	private long[] selections = new long[ 0 ];
+	private long peakHistogramBytes = 0;
+
+	/**
+	 * The time spent in each phase, in nanoseconds, in the order in which they first happened.
+	 */
+	private final Map<String, Long> phases = new LinkedHashMap<String, Long>();
+
+	/**
+	 * Count the points drawn by a worker.
+	 *
+	 * @param iterations The number of points computed.
+	 * @param pointsInFrame The number of those points which were in the frame.
+	 * @param escapes The number of those points which were NaN or infinite.
+	 * @param selections The number of times each transformation has been chosen.
+	 */
+	synchronized void addPoints( long iterations, long pointsInFrame, long escapes, long[] selections )
+	{
+		this.iterations += iterations;
+		this.pointsInFrame += pointsInFrame;
+		this.escapes += escapes;
+
+		if( this.selections.length < selections.length )
+		{
+			long[] grown = new long[ selections.length ];
+			System.arraycopy( this.selections, 0, grown, 0, this.selections.length );
+			this.selections = grown;
+		}
+
+		for( int i = 0; i < selections.length; i++ )
+		{
+			this.selections[ i ] += selections[ i ];
+		}
+	}
+
+	/**
+	 * Record the memory taken by the histograms at some point of a computation.
+	 *
+	 * @param bytes The number of bytes of all the histograms alive at that point.
+	 */
+	synchronized void addHistogramBytes( long bytes )
+	{
+		this.peakHistogramBytes = Math.max( this.peakHistogramBytes, bytes );
+	}
+
+	/**
+	 * Add time spent in a phase.
+	 *
+	 * @param phase The name of the phase.
+	 * @param nanoseconds The time spent, in nanoseconds.
+	 */
+	public synchronized void addPhase( String phase, long nanoseconds )
+	{
+		Long time = this.phases.get( phase );
+
+		this.phases.put( phase, time == null ? nanoseconds : time + nanoseconds );
+	}
+
+	/**
+	 * @return The number of points computed.
+	 */
+	public synchronized long iterations()
+	{
+		return this.iterations;
+	}
+
+	/**
+	 * @return The number of points computed which were in the frame, and thus drawn.
+	 */
+	public synchronized long pointsInFrame()
+	{
+		return this.pointsInFrame;
+	}
+
+	/**
+	 * @return The number of points computed which fell out of the frame, including escapes.
+	 */
+	public synchronized long pointsOutOfFrame()
+	{
+		return this.iterations - this.pointsInFrame;
+	}
+
+	/**
+	 * @return The number of points computed which were NaN or infinite.
+	 */
+	public synchronized long escapes()
+	{
+		return this.escapes;
+	}
+
+	/**
+	 * @return The proportion of the points computed which were in the frame.
+	 */
+	public synchronized double hitRatio()
+	{
+		return this.iterations == 0 ? 0 : ( double )this.pointsInFrame / this.iterations;
+	}
+
+	/**
+	 * @return The number of points computed per second spent iterating.
+	 */
+	public synchronized double iterationsPerSecond()
+	{
+		long time = this.phaseTime( ITERATE );
+
+		return time == 0 ? 0 : this.iterations * 1e9 / time;
+	}
+
+	/**
+	 * @return The number of times each transformation has been chosen, by index.
+	 */
+	public synchronized long[] selections()
+	{
+		return this.selections.clone();
+	}
+
+	/**
+	 * @return The largest number of bytes taken by histograms at once,
+	 * 		   on the heap or mapped.
+	 */
+	public synchronized long peakHistogramBytes()
+	{
+		return this.peakHistogramBytes;
+	}
+
+	/**
+	 * @param phase The name of a phase.
+	 * @return The time spent in that phase, in nanoseconds.
+	 */
+	public synchronized long phaseTime( String phase )
+	{
+		Long time = this.phases.get( phase );
+
+		return time == null ? 0 : time;
+	}
+
+	/**
+	 * @return The time spent in each phase, in nanoseconds, by name.
+	 */
+	public synchronized Map<String, Long> phases()
+	{
+		return new LinkedHashMap<String, Long>( this.phases );
+	}
+
+	/**
+	 * A report of the statistics, on several lines.
+	 */
+	@Override
+	public synchronized String toString()
+	{
+		StringBuilder report = new StringBuilder();
+
+		report.append( String.format( "%d points, %.0f points/s%n", this.iterations, this.iterationsPerSecond() ) );
+		report.append( String.format( "%d in the frame (%.2f%%), %d out of it, %d escaped%n",
+			this.pointsInFrame, 100 * this.hitRatio(), this.pointsOutOfFrame(), this.escapes ) );
+
+		for( int i = 0; i < this.selections.length; i++ )
+		{
+			report.append( String.format( "Transformation %d chosen %d times%n", i + 1, this.selections[ i ] ) );
+		}
+
+		for( Map.Entry<String, Long> phase : this.phases.entrySet() )
+		{
+			report.append( String.format( "%s: %d ms%n", phase.getKey(), phase.getValue() / 1000000 ) );
+		}
+
+		report.append( String.format( "Peak histogram memory: %d KB", this.peakHistogramBytes / 1024 ) );
+
+		return report.toString();
+	}
+
+}
@@ -0,0 +1,110 @@
+package ch.epfl.flamemaker.flame;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.InterpolatedPalette;
+import ch.epfl.flamemaker.geometry2d.AffineTransformation;
+import ch.epfl.flamemaker.geometry2d.Point;
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+import ch.epfl.flamemaker.util.PNGWriter;
+
+public class RenderMetricsTest
+{
+	private static final Rectangle FRAME = new Rectangle( new Point( -0.25, 0 ), 5, 4 );
+	private static final int WIDTH = 50;
+	private static final int HEIGHT = 40;
+	private static final int DENSITY = 20;
+
+	@Test
+	public void testMetricsDoNotChangeResult()
+	{
+		FlameComputation computation = new FlameComputation( FlameComputationTest.sharkfin(), FRAME, WIDTH, HEIGHT, DENSITY );
+		computation.setWorkers( 2 );
+		computation.setMetrics( new RenderMetrics() );
+
+		FlameComputationTest.assertSameAccumulator( FlameComputationTest.sharkfin().compute( FRAME, WIDTH, HEIGHT, DENSITY, 2, Flame.DEFAULT_SEED ), computation.compute() );
+	}
+
+	@Test
+	public void testPointsAreCounted()
+	{
+		RenderMetrics metrics = new RenderMetrics();
+
+		FlameComputation computation = new FlameComputation( FlameComputationTest.sharkfin(), FRAME, WIDTH, HEIGHT, DENSITY );
+		computation.setWorkers( 2 );
+		computation.setMetrics( metrics );
+		computation.setListener( new FlameComputation.Listener()
+		{
+			@Override
+			public void passCompleted( FlameAccumulator accumulator, long iterations, long totalIterations )
+			{
+			}
+		} );
+		computation.compute();
+
+		assertEquals( ( long )WIDTH * HEIGHT * DENSITY, metrics.iterations() );
+		assertEquals( metrics.iterations(), metrics.pointsInFrame() + metrics.pointsOutOfFrame() );
+		assertTrue( metrics.hitRatio() > 0 && metrics.hitRatio() <= 1 );
+		assertEquals( 0, metrics.escapes() );
+
+		long selections = 0;
+
+		for( long count : metrics.selections() )
+		{
+			assertTrue( count > 0 );
+			selections += count;
+		}
+
+		assertEquals( metrics.iterations(), selections );
+		assertTrue( metrics.phaseTime( RenderMetrics.ITERATE ) > 0 );
+		assertTrue( metrics.phaseTime( RenderMetrics.MERGE ) > 0 );
+
+		// The histograms of both workers, and the copy of a snapshot.
+		assertEquals( 3 * 12L * WIDTH * HEIGHT, metrics.peakHistogramBytes() );
+	}
+
+	@Test
+	public void testEscapesAreCounted()
+	{
+		// Every point is sent to the origin, where the spherical variation divides by zero.
+		Flame flame = new Flame( Arrays.asList(
+			new FlameTransformation( new AffineTransformation( 0, 0, 0, 0, 0, 0 ), new double[] { 0, 0, 1, 0, 0, 0 } )
+		) );
+		RenderMetrics metrics = new RenderMetrics();
+
+		FlameComputation computation = new FlameComputation( flame, FRAME, WIDTH, HEIGHT, DENSITY );
+		computation.setMetrics( metrics );
+		computation.compute();
+
+		assertEquals( metrics.iterations(), metrics.escapes() );
+		assertEquals( 0, metrics.pointsInFrame() );
+	}
+
+	@Test
+	public void testExportIsTimed() throws IOException
+	{
+		RenderMetrics metrics = new RenderMetrics();
+		File file = File.createTempFile( "flame", ".png" );
+
+		try
+		{
+			PNGWriter writer = new PNGWriter( file.getPath(), 2 );
+			writer.setMetrics( metrics );
+			writer.printAccumulator( FlameComputationTest.sharkfin().compute( FRAME, WIDTH, HEIGHT, DENSITY ), InterpolatedPalette.RGB_PALETTE, Color.BLACK );
+		}
+		finally
+		{
+			file.delete();
+		}
+
+		assertTrue( metrics.phaseTime( RenderMetrics.ENCODE ) > 0 );
+		assertTrue( metrics.phaseTime( RenderMetrics.WRITE ) > 0 );
+	}
+}
@@ -3,6 +3,8 @@ package ch.epfl.flamemaker.flame;
 import java.util.Arrays;
 import java.util.List;
 
+import ch.epfl.flamemaker.geometry2d.InPlaceTransformation;
+import ch.epfl.flamemaker.geometry2d.MutablePoint;
 import ch.epfl.flamemaker.geometry2d.Point;
 import ch.epfl.flamemaker.geometry2d.Transformation;
 
@@ -12,7 +14,7 @@ import ch.epfl.flamemaker.geometry2d.Transformation;
  * @author Romain Ruetschi #218357
  * @author Arthur Passuello #229261
  */
-public abstract class Variation implements Transformation
+public abstract class Variation implements InPlaceTransformation
 {
 
 	/**
@@ -22,61 +24,67 @@ public abstract class Variation implements Transformation
 		new Variation( 0, "Linear" )
 		{
 			@Override
-			public Point transformPoint( Point p )
+			public void transformInPlace( MutablePoint p )
 			{
-				return p;
+				// The identity, nothing to do.
 			}
 		},
 		new Variation( 1, "Sinusoidal" )
 		{
 			@Override
-			public Point transformPoint( Point p )
+			public void transformInPlace( MutablePoint p )
 			{
-				return new Point( Math.sin( p.x() ), Math.sin( p.y() ) );
+				p.set( Math.sin( p.x() ), Math.sin( p.y() ) );
 			}
 		},
 		new Variation( 2, "Spherical" )
 		{
 			@Override
-			public Point transformPoint( Point p )
+			public void transformInPlace( MutablePoint p )
 			{
 				double r2 = p.r() * p.r();
 				
-				return new Point( p.x() / r2, p.y() / r2 );
+				p.set( p.x() / r2, p.y() / r2 );
 			}
 		},
 		new Variation( 3, "Swirl" )
 		{
 			@Override
-			public Point transformPoint( Point p )
+			public void transformInPlace( MutablePoint p )
 			{
 				double r2 = p.r() * p.r();
+				double x = p.x();
+				double y = p.y();
 				
-				return new Point(
-					p.x() * Math.sin( r2 ) - p.y() * Math.cos( r2 ),
-					p.x() * Math.cos( r2 ) + p.y() * Math.sin( r2 )
+				p.set(
+					x * Math.sin( r2 ) - y * Math.cos( r2 ),
+					x * Math.cos( r2 ) + y * Math.sin( r2 )
 				);
 			}
 		},
 		new Variation( 4, "Horseshoe" )
 		{
 			@Override
-			public Point transformPoint( Point p )
+			public void transformInPlace( MutablePoint p )
 			{
-				return new Point(
-					( ( p.x() - p.y() ) * ( p.x() + p.y() ) ) / p.r(),
-					( 2 * p.x() * p.y() ) / p.r()
+				double r = p.r();
+				double x = p.x();
+				double y = p.y();
+				
+				p.set(
+					( ( x - y ) * ( x + y ) ) / r,
+					( 2 * x * y ) / r
 				);
 			}
 		},
 		new Variation( 5, "Bubble" )
 		{
 			@Override
-			public Point transformPoint( Point p )
+			public void transformInPlace( MutablePoint p )
 			{
 				double r2 = p.r() * p.r();
 				
-				return new Point(
+				p.set(
 					( 4 * p.x() ) / ( r2 + 4 ),
 					( 4 * p.y() ) / ( r2 + 4 )
 				);
@@ -123,8 +131,22 @@ public abstract class Variation implements Transformation
 	}
 	
 	/**
+	 * Transform the given point by transforming a mutable copy of it in place.
+	 * 
 	 * @see Transformation#transformPoint( Point )
 	 */
-	abstract public Point transformPoint( Point p );
+	@Override
+	public Point transformPoint( Point p )
+	{
+		MutablePoint q = new MutablePoint( p );
+		this.transformInPlace( q );
+		
+		return q.toPoint();
+	}
+	
+	/**
+	 * @see InPlaceTransformation#transformInPlace( MutablePoint )
+	 */
+	abstract public void transformInPlace( MutablePoint p );
 
 }
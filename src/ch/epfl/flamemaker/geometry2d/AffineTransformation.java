@@ -1,5 +1,7 @@
 package ch.epfl.flamemaker.geometry2d;
 
+import java.util.Arrays;
+
 /**
  * An affine transformation, defined by the first 6 coefficients
  * of its 3x3 matrix:
@@ -18,7 +20,7 @@ package ch.epfl.flamemaker.geometry2d;
  * @author Romain Ruetschi #218357
  * @author Arthur Passuello #229261
  */
-public class AffineTransformation implements Transformation
+public class AffineTransformation implements InPlaceTransformation
 {
 	
 	/**
@@ -35,8 +37,8 @@ public class AffineTransformation implements Transformation
 	/**
 	 * The first 6 components of the matrix
 	 */
-	private double a, b, c,
-				   d, e, f;
+	private final double a, b, c,
+						 d, e, f;
 	
 	/**
 	 * Create a new affine transformation by it first 6 components.
@@ -72,7 +74,22 @@ public class AffineTransformation implements Transformation
 			this.d * p.x() + this.e * p.y() + this.f
 		);
 	}
-	
+
+	/**
+	 * @see InPlaceTransformation#transformInPlace( MutablePoint )
+	 */
+	@Override
+	public void transformInPlace( MutablePoint p )
+	{
+		double x = p.x();
+		double y = p.y();
+
+		p.set(
+			this.a * x + this.b * y + this.c,
+			this.d * x + this.e * y + this.f
+		);
+	}
+
 	/**
 	 * Get the amount of horizontal translation.
 	 */
@@ -103,6 +120,34 @@ public class AffineTransformation implements Transformation
 		); 
 	}
 	
+	/**
+	 * Two affine transformations are equal if all their components are.
+	 */
+	@Override
+	public boolean equals( Object other )
+	{
+		if( !( other instanceof AffineTransformation ) )
+		{
+			return false;
+		}
+		
+		return Arrays.equals( this.components(), ( ( AffineTransformation )other ).components() );
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode( this.components() );
+	}
+	
+	/**
+	 * @return The first 6 components of the matrix, row after row.
+	 */
+	public double[] components()
+	{
+		return new double[] { this.a, this.b, this.c, this.d, this.e, this.f };
+	}
+	
 	public AffineTransformation clone()
 	{
 		return new AffineTransformation( this.a, this.b, this.c,
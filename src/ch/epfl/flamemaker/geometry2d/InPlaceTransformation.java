@@ -0,0 +1,21 @@
+package ch.epfl.flamemaker.geometry2d;
+
+/**
+ * Represents a transformation which can also be applied to a point in place,
+ * without any allocation, as the chaos game does for every point it draws.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+public interface InPlaceTransformation extends Transformation
+{
+
+	/**
+	 * Transform the given point in place, which must give the same
+	 * result as {@link #transformPoint( Point )}, without any allocation.
+	 *
+	 * @param p The point to transform, which will hold the transformed point.
+	 */
+	public void transformInPlace( MutablePoint p );
+
+}
@@ -0,0 +1,72 @@
+package ch.epfl.flamemaker.geometry2d;
+
+/**
+ * A point in a 2D coordinates system, whose coordinates can be modified.
+ *
+ * Used by the transformations to transform points in place,
+ * without allocating a new {@link Point} at every step.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+public final class MutablePoint
+{
+
+	private double x;
+	private double y;
+
+	public MutablePoint( double x, double y )
+	{
+		this.x = x;
+		this.y = y;
+	}
+
+	public MutablePoint( Point p )
+	{
+		this( p.x(), p.y() );
+	}
+
+	public double x()
+	{
+		return this.x;
+	}
+
+	public double y()
+	{
+		return this.y;
+	}
+
+	/**
+	 * Same as {@link Point#r()}.
+	 */
+	public double r()
+	{
+		return Math.sqrt( x * x + y * y );
+	}
+
+	/**
+	 * Move this point to the given coordinates.
+	 *
+	 * @param x The new x coordinate.
+	 * @param y The new y coordinate.
+	 */
+	public void set( double x, double y )
+	{
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * @return An immutable copy of this point.
+	 */
+	public Point toPoint()
+	{
+		return new Point( this.x, this.y );
+	}
+
+	public String toString()
+	{
+		return "( " + this.x + ", " + this.y + " )";
+	}
+
+}
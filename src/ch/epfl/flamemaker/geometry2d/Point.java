@@ -1,5 +1,7 @@
 package ch.epfl.flamemaker.geometry2d;
 
+import java.util.Arrays;
+
 /**
  * Represent a point in a 2D coordinates system.
  * 
@@ -9,8 +11,8 @@ package ch.epfl.flamemaker.geometry2d;
 public class Point
 {
 	
-	private double x;
-	private double y;
+	private final double x;
+	private final double y;
 	
 	public static Point ORIGIN = new Point( 0, 0 );
 	
@@ -50,6 +52,28 @@ public class Point
 		return new Point( this.x + other.x, this.y + other.y );
 	}
 	
+	/**
+	 * Two points are equal if they have the same coordinates.
+	 */
+	@Override
+	public boolean equals( Object other )
+	{
+		if( !( other instanceof Point ) )
+		{
+			return false;
+		}
+		
+		Point that = ( Point )other;
+		
+		return Double.compare( this.x, that.x ) == 0 && Double.compare( this.y, that.y ) == 0;
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode( new double[] { this.x, this.y } );
+	}
+	
 	public String toString()
 	{
 		return "( " + this.x + ", " + this.y + " )";
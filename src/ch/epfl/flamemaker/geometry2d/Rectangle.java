@@ -1,5 +1,7 @@
 package ch.epfl.flamemaker.geometry2d;
 
+import java.util.Arrays;
+
 /**
  * Represents a rectangle in a 2D coordinates system.
  * A rectangle is defined by its center, and its size.
@@ -74,9 +76,16 @@ public class Rectangle
      */
     public boolean contains(Point p)
     {
-        double x = p.x();
-        double y = p.y();
+        return this.contains( p.x(), p.y() );
+    }
 
+    /**
+     * Check if the point at the given coordinates is contained in this rectangle.
+     *
+     * @see #contains( Point )
+     */
+    public boolean contains( double x, double y )
+    {
         double xmin = this.left();
         double xmax = this.right();
         double ymin = this.bottom();
@@ -123,6 +132,30 @@ public class Rectangle
         return new Rectangle( this.center(), newWidth, newHeight );
     }
 
+    /**
+     * Two rectangles are equal if they have the same center and size.
+     */
+    @Override
+    public boolean equals( Object other )
+    {
+        if( !( other instanceof Rectangle ) )
+        {
+            return false;
+        }
+
+        Rectangle that = ( Rectangle )other;
+
+        return this.center.equals( that.center )
+            && Double.compare( this.width, that.width ) == 0
+            && Double.compare( this.height, that.height ) == 0;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * this.center.hashCode() + Arrays.hashCode( new double[] { this.width, this.height } );
+    }
+
     public String toString()
     {
         return "( " + center + ", " + this.width() + ", " + this.height() + " )";
@@ -6,13 +6,19 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
 
 import ch.epfl.flamemaker.color.Color;
 import ch.epfl.flamemaker.color.Palette;
+import ch.epfl.flamemaker.color.PrecomputedPalette;
 import ch.epfl.flamemaker.flame.Flame;
 import ch.epfl.flamemaker.flame.FlameAccumulator;
+import ch.epfl.flamemaker.flame.FlameComputation;
 import ch.epfl.flamemaker.flame.ObservableFlameBuilder;
 import ch.epfl.flamemaker.geometry2d.Rectangle;
 
@@ -20,6 +26,11 @@ import ch.epfl.flamemaker.geometry2d.Rectangle;
  * A component that displays the fractal that is being built by the given Builder
  * and updates everytime the builder modifies the fractal.
  * 
+ * The fractal is computed in the background, progressively, and the computation
+ * in progress is cancelled as soon as the builder changes. Until a new image is available,
+ * the last one computed is displayed, scaled to the component's size.
+ * The images computed are cached, so that going back to a previous state is instantaneous.
+ * 
  * @author Romain Ruetschi #218357
  * @author Arthur Passuello #229261
  */
@@ -30,9 +41,47 @@ public class FlameBuilderPreviewComponent extends JComponent implements Observer
 	
 	private ObservableFlameBuilder builder;
 	private Color bgColor;
-	private Palette palette;
+	private PrecomputedPalette palette;
 	private Rectangle frame;
 	private int density;
+	
+	/**
+	 * The executor on which the fractal is computed, one computation at a time.
+	 */
+	private final ExecutorService executor = Executors.newSingleThreadExecutor( new ThreadFactory()
+	{
+		@Override
+		public Thread newThread( Runnable runnable )
+		{
+			Thread thread = new Thread( runnable, "Flame preview" );
+			
+			// Don't prevent the program from exiting.
+			thread.setDaemon( true );
+			
+			return thread;
+		}
+	} );
+	
+	/**
+	 * The images already computed, bounded to an eighth of the maximum heap size, and at most 64 MB.
+	 */
+	private final PreviewCache cache = new PreviewCache( Math.min( 64L << 20, Runtime.getRuntime().maxMemory() / 8 ) );
+	
+	/**
+	 * The computation in progress, or the last one.
+	 * Only accessed on the event dispatching thread, like the fields below.
+	 */
+	private FlameComputation computation;
+	
+	/**
+	 * The size of the image being computed.
+	 */
+	private Dimension renderSize;
+	
+	/**
+	 * The last image computed.
+	 */
+	private BufferedImage image;
 
 	/**
 	 * Create a new component, displaying the fractal built by the builder.
@@ -46,7 +95,8 @@ public class FlameBuilderPreviewComponent extends JComponent implements Observer
 	{
 		this.builder = builder;
 		this.bgColor = bgColor;
-		this.palette = palette;
+		// Sample the palette once, since it is looked up for every pixel.
+		this.palette = new PrecomputedPalette( palette );
 		this.frame = frame;
 		this.density = density;
 		
@@ -55,40 +105,141 @@ public class FlameBuilderPreviewComponent extends JComponent implements Observer
 	}
 	
 	/**
-	 * Paint the whole component
+	 * Paint the last image computed, and start a new computation if the size of the component changed.
 	 */
 	@Override
 	protected void paintComponent( Graphics g0 )
 	{
 		Graphics2D g = ( Graphics2D )g0;
 		
+		if( this.renderSize == null || this.renderSize.width != this.getWidth() || this.renderSize.height != this.getHeight() )
+		{
+			this.startComputation();
+		}
+		
+		// Draw the image itself, scaled if the component has been resized since it was computed.
+		if( this.image != null )
+		{
+			g.drawImage( this.image, 0, 0, this.getWidth(), this.getHeight(), null );
+		}
+	}
+	
+	/**
+	 * Cancel the computation in progress, if any, and start computing
+	 * the fractal currently built by the builder in the background,
+	 * unless its image has already been cached.
+	 */
+	private void startComputation()
+	{
+		if( this.computation != null )
+		{
+			this.computation.cancel();
+		}
+		
+		this.renderSize = this.getSize();
+		
+		if( this.getWidth() <= 0 || this.getHeight() <= 0 )
+		{
+			return;
+		}
+		
 		// Get the component's aspect ratio
 		double aspectRatio = ( double )this.getWidth() / ( double )this.getHeight();
 		
 		// Expand the given frame to match the component's aspect ratio
 		Rectangle expandedFrame = frame.expandToAspectRatio( aspectRatio );
 		
-		// Create the buffered image that'll hold the fractal pixels
-		BufferedImage image = new BufferedImage( this.getWidth(), this.getHeight(), BufferedImage.TYPE_INT_RGB );
-		
-		// Build the fractal
+		// Build the fractal here, since the builder is only modified on this thread.
 		Flame flame = this.builder.build();
 		
-		// Compute all the points of the fractal we'll then draw.
-		FlameAccumulator accumulator = flame.compute( expandedFrame, this.getWidth(), this.getHeight(), this.density );
+		final PreviewCache.Key key = new PreviewCache.Key(
+			flame, expandedFrame, this.getWidth(), this.getHeight(), this.density, this.palette, this.bgColor
+		);
+		
+		BufferedImage cached = this.cache.get( key );
+		
+		if( cached != null )
+		{
+			this.computation = null;
+			this.image = cached;
+			this.repaint();
+			
+			return;
+		}
+		
+		final FlameComputation computation = new FlameComputation( flame, expandedFrame, this.getWidth(), this.getHeight(), this.density );
+		computation.setWorkers( Runtime.getRuntime().availableProcessors() );
+		computation.setListener( new FlameComputation.Listener()
+		{
+			@Override
+			public void passCompleted( FlameAccumulator accumulator, long iterations, long totalIterations )
+			{
+				if( computation.isCancelled() )
+				{
+					return;
+				}
+				
+				final BufferedImage image = FlameBuilderPreviewComponent.this.draw( accumulator );
+				final boolean complete = iterations == totalIterations;
+				
+				SwingUtilities.invokeLater( new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						// Ignore the images of the computations that have been replaced since.
+						if( FlameBuilderPreviewComponent.this.computation == computation )
+						{
+							FlameBuilderPreviewComponent.this.image = image;
+							FlameBuilderPreviewComponent.this.repaint();
+							
+							if( complete )
+							{
+								FlameBuilderPreviewComponent.this.cache.put( key, image );
+							}
+						}
+					}
+				} );
+			}
+		} );
+		
+		this.computation = computation;
+		
+		this.executor.execute( new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				computation.compute();
+			}
+		} );
+	}
+	
+	/**
+	 * Draw the points of the given accumulator into an image.
+	 * 
+	 * @param accumulator An accumulator
+	 * @return An image of the same size as the accumulator.
+	 */
+	private BufferedImage draw( FlameAccumulator accumulator )
+	{
+		// Create the buffered image that'll hold the fractal pixels
+		BufferedImage image = new BufferedImage( accumulator.width(), accumulator.height(), BufferedImage.TYPE_INT_RGB );
+		
+		// The components of each point, reused for all of them.
+		double[] rgb = new double[ 3 ];
 		
-		// Draw each point
-		for( int i = 0; i < accumulator.width(); i++ )
+		// Draw each point, row after row to follow the accumulator's layout.
+		for( int j = 0; j < accumulator.height(); j++ )
 		{
-			for( int j = 0; j < accumulator.height(); j++ )
+			for( int i = 0; i < accumulator.width(); i++ )
 			{
-				Color color = accumulator.color( this.palette, this.bgColor, i, j );
-				image.setRGB( i, accumulator.height() - j - 1, color.asPackedRGB() );
+				accumulator.components( this.palette, this.bgColor, i, j, rgb );
+				image.setRGB( i, accumulator.height() - j - 1, Color.packRGB( rgb[ 0 ], rgb[ 1 ], rgb[ 2 ] ) );
 			}
 		}
 		
-		// Draw the image itself
-		g.drawImage( image, 0, 0, null );
+		return image;
 	}
 	
 	/**
@@ -104,7 +255,7 @@ public class FlameBuilderPreviewComponent extends JComponent implements Observer
 	}
 	
 	/**
-	 * Called when the flame builder is modified, in order to redraw the fractal
+	 * Called when the flame builder is modified, in order to recompute the fractal
 	 * and thus reflect the changes in the builder.
 	 * @param builder The builder that changed
 	 * @param argument Unused
@@ -112,7 +263,7 @@ public class FlameBuilderPreviewComponent extends JComponent implements Observer
 	@Override
     public void update( Observable builder, Object argument )
     {
-		this.repaint();
+		this.startComputation();
     }
 	
 }
@@ -0,0 +1,174 @@
+package ch.epfl.flamemaker.gui;
+
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.Palette;
+import ch.epfl.flamemaker.flame.Flame;
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+
+/**
+ * A cache of the images computed by the {@link FlameBuilderPreviewComponent},
+ * so that going back to a flame already displayed doesn't recompute it.
+ *
+ * The least recently used images are evicted once their total size
+ * exceeds the capacity of the cache.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+class PreviewCache
+{
+
+	/**
+	 * Identifies an image by everything that was used to compute it.
+	 */
+	static final class Key
+	{
+
+		private final Flame flame;
+		private final Rectangle frame;
+		private final int width;
+		private final int height;
+		private final int density;
+		private final Palette palette;
+		private final Color background;
+
+		/**
+		 * Create a new key.
+		 *
+		 * @param flame The flame, which cannot be modified.
+		 * @param frame The frame, already expanded to the image's aspect ratio.
+		 * @param width The width of the image.
+		 * @param height The height of the image.
+		 * @param density The density of points.
+		 * @param palette The color palette.
+		 * @param background The background color.
+		 */
+		Key( Flame flame, Rectangle frame, int width, int height, int density, Palette palette, Color background )
+		{
+			this.flame = flame;
+			this.frame = frame;
+			this.width = width;
+			this.height = height;
+			this.density = density;
+			this.palette = palette;
+			this.background = background;
+		}
+
+		@Override
+		public boolean equals( Object other )
+		{
+			if( !( other instanceof Key ) )
+			{
+				return false;
+			}
+
+			Key that = ( Key )other;
+
+			return this.width == that.width
+				&& this.height == that.height
+				&& this.density == that.density
+				&& this.flame.equals( that.flame )
+				&& this.frame.equals( that.frame )
+				&& this.palette.equals( that.palette )
+				&& this.background.equals( that.background );
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int hash = this.flame.hashCode();
+			hash = 31 * hash + this.frame.hashCode();
+			hash = 31 * hash + this.width;
+			hash = 31 * hash + this.height;
+			hash = 31 * hash + this.density;
+			hash = 31 * hash + this.palette.hashCode();
+			hash = 31 * hash + this.background.hashCode();
+
+			return hash;
+		}
+
+	}
+
+	/**
+	 * The images, from the least recently used to the most recently used one.
+	 */
+	private final LinkedHashMap<Key, BufferedImage> images = new LinkedHashMap<Key, BufferedImage>( 16, 0.75f, true );
+
+	/**
+	 * The maximum total size of the images, in bytes.
+	 */
+	private final long capacity;
+
+	/**
+	 * The total size of the images, in bytes.
+	 */
+	private long size = 0;
+
+	/**
+	 * Create a new cache.
+	 *
+	 * @param capacity The maximum total size of the images, in bytes.
+	 */
+	PreviewCache( long capacity )
+	{
+		this.capacity = capacity;
+	}
+
+	/**
+	 * @param key
+	 * @return The image cached for the given key, or null if there is none.
+	 */
+	BufferedImage get( Key key )
+	{
+		return this.images.get( key );
+	}
+
+	/**
+	 * Cache the given image, and evict the least recently used images if needed.
+	 * Images larger than the whole cache are not cached.
+	 *
+	 * @param key
+	 * @param image
+	 */
+	void put( Key key, BufferedImage image )
+	{
+		long imageSize = PreviewCache.sizeOf( image );
+
+		if( imageSize > this.capacity )
+		{
+			return;
+		}
+
+		BufferedImage previous = this.images.put( key, image );
+
+		if( previous != null )
+		{
+			this.size -= PreviewCache.sizeOf( previous );
+		}
+
+		this.size += imageSize;
+
+		Iterator<Map.Entry<Key, BufferedImage>> eldest = this.images.entrySet().iterator();
+
+		while( this.size > this.capacity )
+		{
+			this.size -= PreviewCache.sizeOf( eldest.next().getValue() );
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * @param image An image, with one integer per pixel.
+	 * @return The size of the image, in bytes.
+	 */
+	private static long sizeOf( BufferedImage image )
+	{
+		return 4L * image.getWidth() * image.getHeight();
+	}
+
+}
@@ -1,12 +1,15 @@
 package ch.epfl.flamemaker.ifs;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
 import ch.epfl.flamemaker.geometry2d.AffineTransformation;
 import ch.epfl.flamemaker.geometry2d.Point;
 import ch.epfl.flamemaker.geometry2d.Rectangle;
+import ch.epfl.flamemaker.util.AliasTable;
+import ch.epfl.flamemaker.util.RandomStreams;
 
 /**
  * Represents an IFS transformation.
@@ -16,26 +19,74 @@ import ch.epfl.flamemaker.geometry2d.Rectangle;
  */
 public class IFS
 {
+	/**
+	 * The seed of the random numbers.
+	 */
+	private static final long SEED = 2013;
+
 	private List<AffineTransformation> transformations;
+	private double[] weights;
 
+	/**
+	 * Create an IFS whose transformations are chosen equally often.
+	 */
 	IFS( List<AffineTransformation> transformations )
 	{
+		this( transformations, IFS.uniformWeights( transformations.size() ) );
+	}
+
+	/**
+	 * Create an IFS whose transformations are chosen as often as their weight.
+	 *
+	 * @param transformations The transformations.
+	 * @param weights The weight of each transformation.
+	 */
+	IFS( List<AffineTransformation> transformations, double[] weights )
+	{
+		if( weights.length != transformations.size() )
+		{
+			throw new IllegalArgumentException( "There must be as many weights as transformations." );
+		}
+
 		this.transformations = new ArrayList<AffineTransformation>( transformations );
+		this.weights = weights.clone();
 	}
 
+	private static double[] uniformWeights( int n )
+	{
+		double[] weights = new double[ n ];
+		Arrays.fill( weights, 1 );
+
+		return weights;
+	}
+
+	/**
+	 * Compute the IFS with the streams of {@link Random}, so that the images stay the same.
+	 */
 	public IFSAccumulator compute( Rectangle frame, int width, int height, int density )
+	{
+		return this.compute( frame, width, height, density, RandomStreams.JAVA_UTIL );
+	}
+
+	/**
+	 * Compute the IFS, drawing its random numbers from a stream of the given family.
+	 *
+	 * @param randomStreams The family of the stream, such as {@link RandomStreams#XOSHIRO256}
+	 * 						for faster random numbers.
+	 */
+	public IFSAccumulator compute( Rectangle frame, int width, int height, int density, RandomStreams randomStreams )
 	{
 		IFSAccumulatorBuilder builder = new IFSAccumulatorBuilder( frame,
 		        width, height );
 
 		Point p = new Point( 0, 0 );
-		Random random = new Random( 2013 );
+		Random random = randomStreams.create( SEED, 1 )[ 0 ];
 
-		int n = this.transformations.size();
+		AliasTable selection = new AliasTable( this.weights );
 		
 		for( int j = 0; j < 20; j++ )
 		{
-			int i = random.nextInt( n );
+			int i = selection.next( random );
 			p = this.transformations.get( i ).transformPoint( p );
 		}
 
@@ -43,7 +94,7 @@ public class IFS
 		
 		for( int j = 0; j < iterations; j++ )
 		{
-			int i = random.nextInt( n );
+			int i = selection.next( random );
 			p = this.transformations.get( i ).transformPoint( p );
 			builder.hit( p );
 		}
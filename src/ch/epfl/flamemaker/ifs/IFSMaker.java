@@ -1,6 +1,6 @@
 package ch.epfl.flamemaker.ifs;
 
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.List;
 import java.util.Arrays;
 
@@ -44,7 +44,8 @@ public class IFSMaker
             )
         );
         
-        IFS ifs = new IFS( transformations );
+        // The stem is drawn rarely, and the successive leaflets most of the time.
+        IFS ifs = new IFS( transformations, new double[] { 0.01, 0.07, 0.07, 0.85 } );
         Rectangle frame = new Rectangle( new Point( 0, 4.5 ), 6, 10 );
         
         IFSAccumulator accumulator = ifs.compute( frame, 120, 200, 150 );
@@ -54,7 +55,7 @@ public class IFSMaker
             writer = new PBMWriter( "resources/barnsley.pbm" );
             writer.printAccumulator( accumulator );
         }
-        catch( FileNotFoundException e ) {
+        catch( IOException e ) {
             e.printStackTrace();
         }
     }
@@ -86,7 +87,7 @@ public class IFSMaker
             writer = new PBMWriter( "resources/sierpinski.pbm" );
             writer.printAccumulator( accumulator );
         }
-        catch( FileNotFoundException e ) {
+        catch( IOException e ) {
             e.printStackTrace();
         }
     }
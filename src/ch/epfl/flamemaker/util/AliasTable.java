@@ -0,0 +1,160 @@
+package ch.epfl.flamemaker.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draw random indexes with given weights in constant time, using Vose's alias method.
+ *
+ * The table is built once, in linear time: each index owns a column of height 1,
+ * which it shares with another index, its alias. Drawing an index amounts to
+ * picking a column uniformly, and then either its owner or its alias.
+ *
+ * When all the weights are equal, every column is entirely owned by its index,
+ * and drawing an index only consumes a single {@link Random#nextInt( int )},
+ * exactly as a uniform draw would.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+public final class AliasTable
+{
+
+	/**
+	 * The share of each column owned by its index.
+	 */
+	private final double[] probability;
+
+	/**
+	 * The index sharing each column.
+	 */
+	private final int[] alias;
+
+	/**
+	 * Build the table of the given weights.
+	 *
+	 * @param weights The weights of the indexes, positive, and not all zero.
+	 */
+	public AliasTable( double[] weights )
+	{
+		int n = weights.length;
+		double sum = 0;
+
+		for( double weight : weights )
+		{
+			if( !( weight >= 0 ) || Double.isInfinite( weight ) )
+			{
+				throw new IllegalArgumentException( "The weights must be positive and finite." );
+			}
+
+			sum += weight;
+		}
+
+		if( n == 0 || sum == 0 )
+		{
+			throw new IllegalArgumentException( "At least one weight must be strictly positive." );
+		}
+
+		this.probability = new double[ n ];
+		this.alias = new int[ n ];
+
+		// The heights of the columns, scaled so that they average 1,
+		// and the indexes of the columns lower and higher than that.
+		double[] scaled = new double[ n ];
+		int[] small = new int[ n ];
+		int[] large = new int[ n ];
+		int smallCount = 0;
+		int largeCount = 0;
+
+		for( int i = 0; i < n; i++ )
+		{
+			scaled[ i ] = weights[ i ] * n / sum;
+
+			if( scaled[ i ] < 1 )
+			{
+				small[ smallCount++ ] = i;
+			}
+			else
+			{
+				large[ largeCount++ ] = i;
+			}
+		}
+
+		// Fill each low column with the excess of a high one.
+		while( smallCount > 0 && largeCount > 0 )
+		{
+			int s = small[ --smallCount ];
+			int l = large[ --largeCount ];
+
+			this.probability[ s ] = scaled[ s ];
+			this.alias[ s ] = l;
+
+			scaled[ l ] = ( scaled[ l ] + scaled[ s ] ) - 1;
+
+			if( scaled[ l ] < 1 )
+			{
+				small[ smallCount++ ] = l;
+			}
+			else
+			{
+				large[ largeCount++ ] = l;
+			}
+		}
+
+		// What remains is only off from 1 by rounding errors.
+		while( largeCount > 0 )
+		{
+			int l = large[ --largeCount ];
+			this.probability[ l ] = 1;
+			this.alias[ l ] = l;
+		}
+
+		while( smallCount > 0 )
+		{
+			int s = small[ --smallCount ];
+			this.probability[ s ] = 1;
+			this.alias[ s ] = s;
+		}
+	}
+
+	/**
+	 * Build the table of n equally weighted indexes.
+	 *
+	 * @param n The number of indexes, strictly positive.
+	 * @return The table.
+	 */
+	public static AliasTable uniform( int n )
+	{
+		double[] weights = new double[ n ];
+		Arrays.fill( weights, 1 );
+
+		return new AliasTable( weights );
+	}
+
+	/**
+	 * @return The number of indexes of the table.
+	 */
+	public int size()
+	{
+		return this.probability.length;
+	}
+
+	/**
+	 * Draw an index.
+	 *
+	 * @param random The random numbers stream to draw it from.
+	 * @return An index, drawn with a probability proportional to its weight.
+	 */
+	public int next( Random random )
+	{
+		int i = random.nextInt( this.probability.length );
+
+		if( this.probability[ i ] >= 1 || random.nextDouble() < this.probability[ i ] )
+		{
+			return i;
+		}
+
+		return this.alias[ i ];
+	}
+
+}
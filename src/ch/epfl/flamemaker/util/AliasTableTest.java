@@ -0,0 +1,58 @@
+package ch.epfl.flamemaker.util;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class AliasTableTest
+{
+	private static final int DRAWS = 1000000;
+
+	@Test
+	public void testUniformDrawsLikeNextInt()
+	{
+		AliasTable table = AliasTable.uniform( 7 );
+		Random expected = new Random( 42 );
+		Random actual = new Random( 42 );
+
+		for( int j = 0; j < 1000; j++ )
+		{
+			assertEquals( expected.nextInt( 7 ), table.next( actual ) );
+		}
+	}
+
+	@Test
+	public void testDrawsAreProportionalToWeights()
+	{
+		double[] weights = { 0.01, 0.07, 0, 0.07, 0.85 };
+		AliasTable table = new AliasTable( weights );
+		Random random = new Random( 2013 );
+		int[] counts = new int[ weights.length ];
+
+		for( int j = 0; j < DRAWS; j++ )
+		{
+			counts[ table.next( random ) ]++;
+		}
+
+		assertEquals( 0, counts[ 2 ] );
+
+		for( int i = 0; i < weights.length; i++ )
+		{
+			assertEquals( weights[ i ], ( double )counts[ i ] / DRAWS, 0.002 );
+		}
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testNegativeWeight()
+	{
+		new AliasTable( new double[] { 1, -1 } );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testZeroWeights()
+	{
+		new AliasTable( new double[] { 0, 0 } );
+	}
+}
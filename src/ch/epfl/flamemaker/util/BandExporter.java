@@ -0,0 +1,192 @@
+package ch.epfl.flamemaker.util;
+
+import java.io.IOException;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.Palette;
+import ch.epfl.flamemaker.color.PrecomputedPalette;
+import ch.epfl.flamemaker.flame.FlameAccumulator;
+import ch.epfl.flamemaker.flame.RenderMetrics;
+
+/**
+ * Export a Flame accumulator as an image, one band of rows at a time.
+ *
+ * The rows of a band are colorized into a buffer which is reused for every band,
+ * and pushed to a {@link Sink} before the next band is colorized. The full image
+ * is thus never held in memory, only 3 * width * band height bytes besides the accumulator.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+public class BandExporter
+{
+
+	/**
+	 * Receives the bands of an image, from the top of the image to the bottom.
+	 */
+	public interface Sink
+	{
+
+		/**
+		 * Called once, before the first band.
+		 *
+		 * @param width The width of the image.
+		 * @param height The height of the image.
+		 * @throws IOException
+		 */
+		void start( int width, int height ) throws IOException;
+
+		/**
+		 * Called for each band of rows.
+		 *
+		 * @param rgb The gamma-encoded red, green and blue components of the pixels
+		 * 			  of the band, row after row, from left to right. The array is
+		 * 			  reused for the next band, and must not be kept.
+		 * @param rows The number of rows of the band, which is at most the band height.
+		 * @throws IOException
+		 */
+		void band( byte[] rgb, int rows ) throws IOException;
+
+		/**
+		 * Called once, after the last band.
+		 *
+		 * @throws IOException
+		 */
+		void finish() throws IOException;
+
+	}
+
+	/**
+	 * The default number of rows of a band.
+	 */
+	public static final int DEFAULT_BAND_HEIGHT = 16;
+
+	private final int bandHeight;
+	private RenderMetrics metrics;
+
+	/**
+	 * Create an exporter with the default band height.
+	 */
+	public BandExporter()
+	{
+		this( DEFAULT_BAND_HEIGHT );
+	}
+
+	/**
+	 * Create an exporter with the given band height.
+	 *
+	 * @param bandHeight The number of rows to colorize at a time.
+	 */
+	public BandExporter( int bandHeight )
+	{
+		if( bandHeight < 1 )
+		{
+			throw new IllegalArgumentException( "bandHeight must be strictly positive." );
+		}
+
+		this.bandHeight = bandHeight;
+	}
+
+	/**
+	 * @return The number of rows colorized at a time.
+	 */
+	public int bandHeight()
+	{
+		return this.bandHeight;
+	}
+
+	/**
+	 * Add the time spent colorizing the bands, and pushing them to the sink, to the given metrics.
+	 *
+	 * @param metrics The metrics to add to, or null not to collect any.
+	 */
+	public void setMetrics( RenderMetrics metrics )
+	{
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Colorize the given accumulator band after band, and push each band to the given sink.
+	 *
+	 * @param flame The accumulator to export.
+	 * @param palette The color palette.
+	 * @param bg The background color.
+	 * @param sink Where to push the bands.
+	 * @throws IOException If the sink fails to write a band.
+	 */
+	public void export( FlameAccumulator flame, Palette palette, Color bg, Sink sink ) throws IOException
+	{
+		int rowSize = 3 * flame.width();
+		byte[] rgb = new byte[ rowSize * Math.min( this.bandHeight, Math.max( 1, flame.height() ) ) ];
+
+		long colorizing = 0;
+		long start = System.nanoTime();
+
+		sink.start( flame.width(), flame.height() );
+
+		for( int first = 0; first < flame.height(); first += this.bandHeight )
+		{
+			int rows = Math.min( this.bandHeight, flame.height() - first );
+			long bandStart = System.nanoTime();
+
+			for( int row = 0; row < rows; row++ )
+			{
+				BandExporter.colorize( flame, palette, bg, first + row, rgb, row * rowSize );
+			}
+
+			colorizing += System.nanoTime() - bandStart;
+			sink.band( rgb, rows );
+		}
+
+		sink.finish();
+
+		if( this.metrics != null )
+		{
+			this.metrics.addPhase( RenderMetrics.COLORIZE, colorizing );
+			this.metrics.addPhase( RenderMetrics.WRITE, System.nanoTime() - start - colorizing );
+		}
+	}
+
+	/**
+	 * Write the gamma-encoded components of a row of the image into the given array.
+	 *
+	 * @param flame The accumulator.
+	 * @param palette The color palette.
+	 * @param bg The background color.
+	 * @param row The row, numbered from the top of the image.
+	 * @param rgb The array to write to.
+	 * @param offset The position in the array of the first component of the row.
+	 */
+	static void colorize( FlameAccumulator flame, Palette palette, Color bg, int row, byte[] rgb, int offset )
+	{
+		int y = flame.height() - 1 - row;
+
+		// A precomputed palette gives the components without creating any color.
+		if( palette instanceof PrecomputedPalette )
+		{
+			PrecomputedPalette precomputed = ( PrecomputedPalette )palette;
+			double[] components = new double[ 3 ];
+
+			for( int x = 0, i = offset; x < flame.width(); x++ )
+			{
+				flame.components( precomputed, bg, x, y, components );
+
+				rgb[ i++ ] = ( byte )Color.sRGBEncode( components[ 0 ], 255 );
+				rgb[ i++ ] = ( byte )Color.sRGBEncode( components[ 1 ], 255 );
+				rgb[ i++ ] = ( byte )Color.sRGBEncode( components[ 2 ], 255 );
+			}
+
+			return;
+		}
+
+		for( int x = 0, i = offset; x < flame.width(); x++ )
+		{
+			Color color = flame.color( palette, bg, x, y );
+
+			rgb[ i++ ] = ( byte )Color.sRGBEncode( color.red(), 255 );
+			rgb[ i++ ] = ( byte )Color.sRGBEncode( color.green(), 255 );
+			rgb[ i++ ] = ( byte )Color.sRGBEncode( color.blue(), 255 );
+		}
+	}
+
+}
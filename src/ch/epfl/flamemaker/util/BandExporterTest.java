@@ -0,0 +1,77 @@
+package ch.epfl.flamemaker.util;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.InterpolatedPalette;
+import ch.epfl.flamemaker.flame.FlameAccumulator;
+
+public class BandExporterTest
+{
+	private static final int WIDTH = 9;
+	private static final int HEIGHT = 23;
+
+	@Test
+	public void testBandHeightsGiveTheSameBytes() throws IOException
+	{
+		FlameAccumulator accumulator = PPMWriterTest.accumulator( WIDTH, HEIGHT );
+		byte[] expected = export( accumulator, HEIGHT );
+
+		assertEquals( 3 * WIDTH * HEIGHT, expected.length );
+
+		// Heights which divide the height of the image or not, and one larger than it.
+		for( int bandHeight : new int[] { 1, 2, 5, 7, 16, 22, 100 } )
+		{
+			assertArrayEquals( "Band height " + bandHeight, expected, export( accumulator, bandHeight ) );
+		}
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testInvalidBandHeight()
+	{
+		new BandExporter( 0 );
+	}
+
+	/**
+	 * @return The components of the pixels pushed to the sink, checking the sizes of the bands.
+	 */
+	private static byte[] export( FlameAccumulator accumulator, final int bandHeight ) throws IOException
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		new BandExporter( bandHeight ).export( accumulator, InterpolatedPalette.RGB_PALETTE, Color.BLACK, new BandExporter.Sink()
+		{
+			private int rows = 0;
+
+			@Override
+			public void start( int width, int height )
+			{
+				assertEquals( WIDTH, width );
+				assertEquals( HEIGHT, height );
+			}
+
+			@Override
+			public void band( byte[] rgb, int rows )
+			{
+				assertTrue( rows >= 1 && rows <= bandHeight );
+				assertEquals( Math.min( bandHeight, HEIGHT - this.rows ), rows );
+
+				bytes.write( rgb, 0, 3 * WIDTH * rows );
+				this.rows += rows;
+			}
+
+			@Override
+			public void finish()
+			{
+				assertEquals( HEIGHT, this.rows );
+			}
+		} );
+
+		return bytes.toByteArray();
+	}
+}
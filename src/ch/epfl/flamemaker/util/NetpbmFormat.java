@@ -0,0 +1,23 @@
+package ch.epfl.flamemaker.util;
+
+/**
+ * The two variants of the Netpbm formats (PBM, PGM and PPM).
+ * 
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+public enum NetpbmFormat
+{
+	
+	/**
+	 * The ASCII variant (P1, P2 and P3), readable by any tool but large and slow to write.
+	 */
+	PLAIN,
+	
+	/**
+	 * The binary variant (P4, P5 and P6), with one bit per pixel for PBM
+	 * and one byte per sample for PGM and PPM.
+	 */
+	RAW
+	
+}
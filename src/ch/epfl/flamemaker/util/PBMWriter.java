@@ -1,7 +1,10 @@
 package ch.epfl.flamemaker.util;
 
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
 
 import ch.epfl.flamemaker.ifs.IFSAccumulator;
 
@@ -21,16 +24,52 @@ public class PBMWriter
 	private static boolean INVERT = false;
 	
 	private String fileName;
+	private NetpbmFormat format;
 	private PrintStream stream; 
+	private FileOutputStream output;
 
+	/**
+	 * Create a writer to a plain (P1) PBM file.
+	 * 
+	 * @param fileName
+	 * @throws FileNotFoundException
+	 */
 	public PBMWriter( String fileName ) throws FileNotFoundException
+	{
+		this( fileName, NetpbmFormat.PLAIN );
+	}
+	
+	/**
+	 * Create a writer to a PBM file of the given format.
+	 * 
+	 * @param fileName
+	 * @param format PLAIN for P1, RAW for P4, with 8 pixels per byte.
+	 * @throws FileNotFoundException
+	 */
+	public PBMWriter( String fileName, NetpbmFormat format ) throws FileNotFoundException
 	{
 		this.fileName = fileName;
-		this.stream = new PrintStream( this.fileName );
+		this.format = format;
+		
+		if( format == NetpbmFormat.PLAIN )
+		{
+			this.stream = new PrintStream( this.fileName );
+		}
+		else
+		{
+			this.output = new FileOutputStream( this.fileName );
+		}
 	}
 	
-	public void printAccumulator( IFSAccumulator ifs )
+	public void printAccumulator( IFSAccumulator ifs ) throws IOException
 	{
+		if( this.format == NetpbmFormat.RAW )
+		{
+			this.writeRaw( ifs );
+			
+			return;
+		}
+		
 		this.stream.println( "P1" );
 		this.stream.println( ifs.width() + " " + ifs.height() );
 		
@@ -46,4 +85,45 @@ public class PBMWriter
 		
 		this.stream.close();
 	}
+	
+	/**
+	 * Write the accumulator as a raw (P4) PBM file, each row
+	 * packed 8 pixels per byte, the leftmost one in the most significant bit.
+	 */
+	private void writeRaw( IFSAccumulator ifs ) throws IOException
+	{
+		RowChannel channel = new RowChannel( this.output.getChannel(), ( ifs.width() + 7 ) / 8 );
+		
+		try
+		{
+			channel.writeHeader( "P4\n" + ifs.width() + " " + ifs.height() + "\n" );
+			
+			for( int i = ifs.height() - 1; i >= 0; i-- )
+			{
+				ByteBuffer row = channel.nextRow();
+				int bits = 0;
+				
+				for( int j = 0; j < ifs.width(); j++ )
+				{
+					bits = bits << 1 | ( ifs.isHit( j, i ) ^ INVERT ? 1 : 0 );
+					
+					if( j % 8 == 7 )
+					{
+						row.put( ( byte )bits );
+						bits = 0;
+					}
+				}
+				
+				// Pad the last byte of the row with zeros.
+				if( ifs.width() % 8 != 0 )
+				{
+					row.put( ( byte )( bits << ( 8 - ifs.width() % 8 ) ) );
+				}
+			}
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
 }
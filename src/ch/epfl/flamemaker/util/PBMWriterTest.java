@@ -0,0 +1,88 @@
+package ch.epfl.flamemaker.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import ch.epfl.flamemaker.ifs.IFSAccumulator;
+
+public class PBMWriterTest
+{
+	@Test
+	public void testRawHeader() throws Exception
+	{
+		byte[] bytes = writeRaw( hitMap( 16, 2 ) );
+		byte[] header = "P4\n16 2\n".getBytes( "US-ASCII" );
+
+		assertEquals( header.length + 2 * 2, bytes.length );
+		assertArrayEquals( header, Arrays.copyOf( bytes, header.length ) );
+	}
+
+	@Test
+	public void testRawPacking() throws Exception
+	{
+		// Widths which are a multiple of 8 or not, the last byte of each row being padded.
+		for( int width : new int[] { 1, 7, 8, 9, 13, 16, 21 } )
+		{
+			boolean[][] hitMap = hitMap( width, 3 );
+			byte[] bytes = writeRaw( hitMap );
+			byte[] header = ( "P4\n" + width + " 3\n" ).getBytes( "US-ASCII" );
+			int rowSize = ( width + 7 ) / 8;
+			byte[] rows = new byte[ 3 * rowSize ];
+
+			// The leftmost pixel in the most significant bit, the top row first.
+			for( int y = 0; y < 3; y++ )
+			{
+				for( int x = 0; x < width; x++ )
+				{
+					if( hitMap[ x ][ 2 - y ] )
+					{
+						rows[ y * rowSize + x / 8 ] |= 0x80 >> ( x % 8 );
+					}
+				}
+			}
+
+			assertArrayEquals( "Width " + width, rows, Arrays.copyOfRange( bytes, header.length, bytes.length ) );
+		}
+	}
+
+	private static boolean[][] hitMap( int width, int height )
+	{
+		boolean[][] hitMap = new boolean[ width ][ height ];
+
+		for( int x = 0; x < width; x++ )
+		{
+			for( int y = 0; y < height; y++ )
+			{
+				hitMap[ x ][ y ] = ( x + 2 * y ) % 3 == 0 || x == width - 1;
+			}
+		}
+
+		return hitMap;
+	}
+
+	private static byte[] writeRaw( boolean[][] hitMap ) throws Exception
+	{
+		// The accumulator is only built by the IFS, in its own package.
+		Constructor<IFSAccumulator> constructor = IFSAccumulator.class.getDeclaredConstructor( boolean[][].class );
+		constructor.setAccessible( true );
+
+		File file = File.createTempFile( "ifs", ".pbm" );
+
+		try
+		{
+			new PBMWriter( file.getPath(), NetpbmFormat.RAW ).printAccumulator( constructor.newInstance( ( Object )hitMap ) );
+
+			return PPMWriterTest.read( file );
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+}
@@ -1,7 +1,10 @@
 package ch.epfl.flamemaker.util;
 
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
 
 import ch.epfl.flamemaker.flame.FlameAccumulator;
 
@@ -15,16 +18,52 @@ public class PGMWriter
 {
 	
 	private String fileName;
+	private NetpbmFormat format;
 	private PrintStream stream; 
+	private FileOutputStream output;
 
+	/**
+	 * Create a writer to a plain (P2) PGM file.
+	 * 
+	 * @param fileName
+	 * @throws FileNotFoundException
+	 */
 	public PGMWriter( String fileName ) throws FileNotFoundException
+	{
+		this( fileName, NetpbmFormat.PLAIN );
+	}
+	
+	/**
+	 * Create a writer to a PGM file of the given format.
+	 * 
+	 * @param fileName
+	 * @param format PLAIN for P2, with values between 0 and 100, RAW for P5, with values between 0 and 255.
+	 * @throws FileNotFoundException
+	 */
+	public PGMWriter( String fileName, NetpbmFormat format ) throws FileNotFoundException
 	{
 		this.fileName = fileName;
-		this.stream = new PrintStream( this.fileName );
+		this.format = format;
+		
+		if( format == NetpbmFormat.PLAIN )
+		{
+			this.stream = new PrintStream( this.fileName );
+		}
+		else
+		{
+			this.output = new FileOutputStream( this.fileName );
+		}
 	}
 	
-	public void printAccumulator( FlameAccumulator flame )
+	public void printAccumulator( FlameAccumulator flame ) throws IOException
 	{
+		if( this.format == NetpbmFormat.RAW )
+		{
+			this.writeRaw( flame );
+			
+			return;
+		}
+		
 		this.stream.println( "P2" );
 		this.stream.println( flame.width() + " " + flame.height() );
 		this.stream.println( "100" );
@@ -41,4 +80,31 @@ public class PGMWriter
 		
 		this.stream.close();
 	}
+	
+	/**
+	 * Write the accumulator as a raw (P5) PGM file, one byte per pixel.
+	 */
+	private void writeRaw( FlameAccumulator flame ) throws IOException
+	{
+		RowChannel channel = new RowChannel( this.output.getChannel(), flame.width() );
+		
+		try
+		{
+			channel.writeHeader( "P5\n" + flame.width() + " " + flame.height() + "\n255\n" );
+			
+			for( int i = flame.height() - 1; i >= 0; i-- )
+			{
+				ByteBuffer row = channel.nextRow();
+				
+				for( int j = 0; j < flame.width(); j++ )
+				{
+					row.put( ( byte )Math.round( flame.intensity( j, i ) * 255 ) );
+				}
+			}
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
 }
@@ -0,0 +1,46 @@
+package ch.epfl.flamemaker.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import ch.epfl.flamemaker.flame.FlameAccumulator;
+
+public class PGMWriterTest
+{
+	@Test
+	public void testRaw() throws IOException
+	{
+		FlameAccumulator accumulator = PPMWriterTest.accumulator( 11, 7 );
+		File file = File.createTempFile( "flame", ".pgm" );
+
+		try
+		{
+			new PGMWriter( file.getPath(), NetpbmFormat.RAW ).printAccumulator( accumulator );
+
+			byte[] header = "P5\n11 7\n255\n".getBytes( "US-ASCII" );
+			byte[] bytes = PPMWriterTest.read( file );
+
+			assertEquals( header.length + 11 * 7, bytes.length );
+			assertArrayEquals( header, Arrays.copyOf( bytes, header.length ) );
+
+			int i = header.length;
+
+			for( int y = accumulator.height() - 1; y >= 0; y-- )
+			{
+				for( int x = 0; x < accumulator.width(); x++ )
+				{
+					assertEquals( Math.round( accumulator.intensity( x, y ) * 255 ), bytes[ i++ ] & 0xFF );
+				}
+			}
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,419 @@
+package ch.epfl.flamemaker.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.Palette;
+import ch.epfl.flamemaker.flame.FlameAccumulator;
+import ch.epfl.flamemaker.flame.RenderMetrics;
+
+/**
+ * Dump a Flame accumulator into a PNG file, 8 bits per RGB component.
+ *
+ * The image is split into bands of rows, which are colorized, filtered and compressed
+ * in parallel, each into an independent segment of the deflate stream. The segments are
+ * then written in order, their checksums being combined into the one of the whole stream.
+ * Only a few bands are encoded ahead of the one being written, so the memory needed
+ * doesn't depend on the height of the image.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+public class PNGWriter
+{
+
+	private static final byte[] SIGNATURE = { ( byte )137, 80, 78, 71, 13, 10, 26, 10 };
+
+	/**
+	 * The approximate size of the filtered data of a band, before compression.
+	 */
+	private static final int BAND_SIZE = 1 << 18;
+
+	/**
+	 * The modulus of the Adler-32 checksum.
+	 */
+	private static final long ADLER_BASE = 65521;
+
+	private String fileName;
+	private DataOutputStream stream;
+	private int workers;
+	private RenderMetrics metrics;
+
+	/**
+	 * Create a writer to a PNG file, using as many workers as there are available processors.
+	 *
+	 * @param fileName
+	 * @throws FileNotFoundException
+	 */
+	public PNGWriter( String fileName ) throws FileNotFoundException
+	{
+		this( fileName, Runtime.getRuntime().availableProcessors() );
+	}
+
+	/**
+	 * Create a writer to a PNG file, using the given number of workers.
+	 *
+	 * @param fileName
+	 * @param workers The number of bands to encode at the same time.
+	 * @throws FileNotFoundException
+	 */
+	public PNGWriter( String fileName, int workers ) throws FileNotFoundException
+	{
+		if( workers < 1 )
+		{
+			throw new IllegalArgumentException( "workers must be strictly positive." );
+		}
+
+		this.fileName = fileName;
+		this.workers = workers;
+		this.stream = new DataOutputStream( new FileOutputStream( this.fileName ) );
+	}
+
+	/**
+	 * Add the time spent encoding the bands, summed over the workers,
+	 * and writing them, to the given metrics.
+	 *
+	 * @param metrics The metrics to add to, or null not to collect any.
+	 */
+	public void setMetrics( RenderMetrics metrics )
+	{
+		this.metrics = metrics;
+	}
+
+	public void printAccumulator( final FlameAccumulator flame, final Palette palette, final Color bg ) throws IOException
+	{
+		final int rowSize = 1 + 3 * flame.width();
+		final int bandHeight = Math.max( 1, BAND_SIZE / rowSize );
+		int bands = ( flame.height() + bandHeight - 1 ) / bandHeight;
+
+		ExecutorService executor = Executors.newFixedThreadPool( this.workers );
+		final RenderMetrics metrics = this.metrics;
+
+		try
+		{
+			this.stream.write( SIGNATURE );
+
+			ByteArrayOutputStream header = new ByteArrayOutputStream();
+			DataOutputStream data = new DataOutputStream( header );
+			data.writeInt( flame.width() );
+			data.writeInt( flame.height() );
+			data.writeByte( 8 ); // Bit depth
+			data.writeByte( 2 ); // Color type: RGB
+			data.writeByte( 0 ); // Compression method: deflate
+			data.writeByte( 0 ); // Filter method: adaptive
+			data.writeByte( 0 ); // No interlacing
+			this.writeChunk( "IHDR", header.toByteArray() );
+
+			// The zlib header: deflate with a 32K window, default compression.
+			this.writeChunk( "IDAT", new byte[] { 0x78, ( byte )0x9C } );
+
+			// Bands are submitted at most a few ahead of the one being written, so that
+			// only these are held in memory, whatever the size of the image.
+			Deque<Future<Segment>> segments = new ArrayDeque<Future<Segment>>();
+			int window = 2 * this.workers;
+			long adler = 1;
+
+			for( int band = 0; band < bands; band++ )
+			{
+				final int first = band * bandHeight;
+				final int last = Math.min( flame.height(), first + bandHeight );
+
+				segments.addLast( executor.submit( new Callable<Segment>()
+				{
+					@Override
+					public Segment call()
+					{
+						long start = System.nanoTime();
+						Segment segment = PNGWriter.encode( flame, palette, bg, first, last );
+
+						if( metrics != null )
+						{
+							metrics.addPhase( RenderMetrics.ENCODE, System.nanoTime() - start );
+						}
+
+						return segment;
+					}
+				} ) );
+
+				if( segments.size() == window )
+				{
+					adler = this.writeSegment( segments.removeFirst(), adler );
+				}
+			}
+
+			while( !segments.isEmpty() )
+			{
+				adler = this.writeSegment( segments.removeFirst(), adler );
+			}
+
+			this.writeChunk( "IDAT", new byte[] {
+				( byte )( adler >>> 24 ), ( byte )( adler >>> 16 ), ( byte )( adler >>> 8 ), ( byte )adler
+			} );
+			this.writeChunk( "IEND", new byte[ 0 ] );
+		}
+		catch( InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+
+			throw new IOException( "The encoding has been interrupted." );
+		}
+		catch( ExecutionException e )
+		{
+			throw new IllegalStateException( "A band failed to be encoded.", e.getCause() );
+		}
+		finally
+		{
+			executor.shutdownNow();
+			this.stream.close();
+		}
+	}
+
+	/**
+	 * A band of rows, compressed.
+	 */
+	private static final class Segment
+	{
+
+		private final byte[] compressed;
+		private final long adler;
+		private final long length;
+
+		/**
+		 * @param compressed The deflated rows.
+		 * @param adler The Adler-32 checksum of the rows before compression.
+		 * @param length The size of the rows before compression.
+		 */
+		Segment( byte[] compressed, long adler, long length )
+		{
+			this.compressed = compressed;
+			this.adler = adler;
+			this.length = length;
+		}
+
+	}
+
+	/**
+	 * Colorize, filter and compress the rows of the image between first (included)
+	 * and last (excluded), the image's rows being numbered from the top.
+	 *
+	 * The segment of all bands but the last ends with a sync flush, so that it
+	 * ends on a byte boundary and can be followed by the next segment.
+	 *
+	 * @return The compressed segment.
+	 */
+	private static Segment encode( FlameAccumulator flame, Palette palette, Color bg, int first, int last )
+	{
+		int width = 3 * flame.width();
+		byte[] filtered = new byte[ ( last - first ) * ( 1 + width ) ];
+		byte[] previous = new byte[ width ];
+		byte[] current = new byte[ width ];
+
+		// Filters refer to the previous row, which belongs to the previous band for the first row.
+		if( first > 0 )
+		{
+			BandExporter.colorize( flame, palette, bg, first - 1, previous, 0 );
+		}
+
+		for( int row = first; row < last; row++ )
+		{
+			BandExporter.colorize( flame, palette, bg, row, current, 0 );
+			PNGWriter.filter( previous, current, filtered, ( row - first ) * ( 1 + width ) );
+
+			byte[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+
+		Adler32 adler = new Adler32();
+		adler.update( filtered );
+
+		Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true );
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		byte[] buffer = new byte[ 1 << 16 ];
+		deflater.setInput( filtered );
+
+		if( last == flame.height() )
+		{
+			deflater.finish();
+
+			while( !deflater.finished() )
+			{
+				compressed.write( buffer, 0, deflater.deflate( buffer ) );
+			}
+		}
+		else
+		{
+			int length;
+
+			do
+			{
+				length = deflater.deflate( buffer, 0, buffer.length, Deflater.SYNC_FLUSH );
+				compressed.write( buffer, 0, length );
+			}
+			while( length == buffer.length );
+		}
+
+		deflater.end();
+
+		return new Segment( compressed.toByteArray(), adler.getValue(), filtered.length );
+	}
+
+	/**
+	 * Filter a row with each of the five PNG filters, and keep the one whose output has
+	 * the smallest sum of absolute values, which usually compresses best.
+	 *
+	 * @param previous The previous row, all zeros for the first row of the image.
+	 * @param current The row to filter.
+	 * @param out The array to write the filter type and the filtered row to.
+	 * @param offset The position in out at which to write.
+	 */
+	private static void filter( byte[] previous, byte[] current, byte[] out, int offset )
+	{
+		int best = 0;
+		long bestSum = Long.MAX_VALUE;
+
+		for( int type = 0; type < 5; type++ )
+		{
+			long sum = 0;
+
+			for( int i = 0; i < current.length && sum < bestSum; i++ )
+			{
+				sum += Math.abs( PNGWriter.filter( type, previous, current, i ) );
+			}
+
+			if( sum < bestSum )
+			{
+				best = type;
+				bestSum = sum;
+			}
+		}
+
+		out[ offset ] = ( byte )best;
+
+		for( int i = 0; i < current.length; i++ )
+		{
+			out[ offset + 1 + i ] = PNGWriter.filter( best, previous, current, i );
+		}
+	}
+
+	/**
+	 * Apply a PNG filter to the byte at the given position of a row.
+	 *
+	 * @param type The filter type: none, sub, up, average or Paeth.
+	 * @return The filtered byte.
+	 */
+	private static byte filter( int type, byte[] previous, byte[] current, int i )
+	{
+		// The corresponding bytes of the pixel on the left, above, and above on the left.
+		int x = current[ i ] & 0xFF;
+		int a = i >= 3 ? current[ i - 3 ] & 0xFF : 0;
+		int b = previous[ i ] & 0xFF;
+		int c = i >= 3 ? previous[ i - 3 ] & 0xFF : 0;
+
+		switch( type )
+		{
+			case 1:
+				return ( byte )( x - a );
+
+			case 2:
+				return ( byte )( x - b );
+
+			case 3:
+				return ( byte )( x - ( a + b ) / 2 );
+
+			case 4:
+				int p = a + b - c;
+				int pa = Math.abs( p - a );
+				int pb = Math.abs( p - b );
+				int pc = Math.abs( p - c );
+				int predictor = pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+
+				return ( byte )( x - predictor );
+
+			default:
+				return ( byte )x;
+		}
+	}
+
+	/**
+	 * Compute the Adler-32 checksum of the concatenation of two sequences of bytes,
+	 * given their checksums, like zlib's adler32_combine.
+	 *
+	 * @param adler1 The checksum of the first sequence.
+	 * @param adler2 The checksum of the second sequence.
+	 * @param length2 The length of the second sequence.
+	 * @return The checksum of the concatenation.
+	 */
+	static long combineAdler32( long adler1, long adler2, long length2 )
+	{
+		long remainder = length2 % ADLER_BASE;
+		long sum1 = adler1 & 0xFFFF;
+		long sum2 = ( remainder * sum1 ) % ADLER_BASE;
+
+		sum1 += ( adler2 & 0xFFFF ) + ADLER_BASE - 1;
+		sum2 += ( ( adler1 >>> 16 ) & 0xFFFF ) + ( ( adler2 >>> 16 ) & 0xFFFF ) + ADLER_BASE - remainder;
+
+		sum1 %= ADLER_BASE;
+		sum2 %= ADLER_BASE;
+
+		return sum2 << 16 | sum1;
+	}
+
+	/**
+	 * Write a compressed band, once it is ready, as an IDAT chunk.
+	 *
+	 * @param future The band being encoded.
+	 * @param adler The checksum of the bands written so far.
+	 * @return The checksum of the bands written so far, including this one.
+	 */
+	private long writeSegment( Future<Segment> future, long adler ) throws IOException, InterruptedException, ExecutionException
+	{
+		Segment segment = future.get();
+		long start = System.nanoTime();
+
+		this.writeChunk( "IDAT", segment.compressed );
+
+		if( this.metrics != null )
+		{
+			this.metrics.addPhase( RenderMetrics.WRITE, System.nanoTime() - start );
+		}
+
+		return PNGWriter.combineAdler32( adler, segment.adler, segment.length );
+	}
+
+	/**
+	 * Write a PNG chunk: its length, type, data and CRC.
+	 *
+	 * @param type The four letters type of the chunk.
+	 * @param data The data of the chunk.
+	 * @throws IOException
+	 */
+	private void writeChunk( String type, byte[] data ) throws IOException
+	{
+		byte[] typeBytes = type.getBytes( "US-ASCII" );
+
+		CRC32 crc = new CRC32();
+		crc.update( typeBytes );
+		crc.update( data );
+
+		this.stream.writeInt( data.length );
+		this.stream.write( typeBytes );
+		this.stream.write( data );
+		this.stream.writeInt( ( int )crc.getValue() );
+	}
+
+}
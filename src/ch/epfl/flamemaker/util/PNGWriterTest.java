@@ -0,0 +1,124 @@
+package ch.epfl.flamemaker.util;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Adler32;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.InterpolatedPalette;
+import ch.epfl.flamemaker.color.Palette;
+import ch.epfl.flamemaker.flame.FlameAccumulator;
+
+public class PNGWriterTest
+{
+	private static final Palette PALETTE = InterpolatedPalette.RGB_PALETTE;
+	private static final Color BACKGROUND = new Color( 0.1, 0.2, 0.3 );
+
+	@Test
+	public void testSingleSegment() throws IOException
+	{
+		assertDecodesTo( PPMWriterTest.accumulator( 20, 10 ), 1 );
+	}
+
+	@Test
+	public void testSeveralSegments() throws IOException
+	{
+		// Rows of 901 bytes give bands of 290 rows, the last one shorter.
+		FlameAccumulator accumulator = PPMWriterTest.accumulator( 300, 700 );
+
+		assertDecodesTo( accumulator, 1 );
+		assertDecodesTo( accumulator, 3 );
+	}
+
+	@Test
+	public void testRowsLargerThanABand() throws IOException
+	{
+		// A band holds a single row when rows are larger than its size.
+		assertDecodesTo( PPMWriterTest.accumulator( 100000, 3 ), 2 );
+	}
+
+	@Test
+	public void testCombineAdler32()
+	{
+		Random random = new Random( 2013 );
+
+		for( int n = 0; n < 100; n++ )
+		{
+			byte[] first = new byte[ random.nextInt( 100000 ) ];
+			byte[] second = new byte[ n == 0 ? 0 : random.nextInt( 200000 ) ];
+			random.nextBytes( first );
+			random.nextBytes( second );
+
+			Adler32 whole = new Adler32();
+			whole.update( first );
+			whole.update( second );
+
+			assertEquals( whole.getValue(), PNGWriter.combineAdler32( adler( first ), adler( second ), second.length ) );
+		}
+	}
+
+	@Test
+	public void testCombineAdler32WithLargeLength()
+	{
+		// Longer than the modulus, with sums close to it.
+		byte[] first = { ( byte )0xFF };
+		byte[] second = new byte[ 3 * 65521 + 17 ];
+		Arrays.fill( second, ( byte )0xFF );
+
+		Adler32 whole = new Adler32();
+		whole.update( first );
+		whole.update( second );
+
+		assertEquals( whole.getValue(), PNGWriter.combineAdler32( adler( first ), adler( second ), second.length ) );
+	}
+
+	private static long adler( byte[] bytes )
+	{
+		Adler32 adler = new Adler32();
+		adler.update( bytes );
+
+		return adler.getValue();
+	}
+
+	/**
+	 * Write the accumulator to a PNG file, and check that decoding it gives
+	 * back its colors, the first row of the image being the top one.
+	 */
+	private static void assertDecodesTo( FlameAccumulator accumulator, int workers ) throws IOException
+	{
+		File file = File.createTempFile( "flame", ".png" );
+
+		try
+		{
+			new PNGWriter( file.getPath(), workers ).printAccumulator( accumulator, PALETTE, BACKGROUND );
+
+			BufferedImage image = ImageIO.read( file );
+
+			assertEquals( accumulator.width(), image.getWidth() );
+			assertEquals( accumulator.height(), image.getHeight() );
+
+			for( int y = 0; y < image.getHeight(); y++ )
+			{
+				for( int x = 0; x < image.getWidth(); x++ )
+				{
+					int expected = accumulator.color( PALETTE, BACKGROUND, x, accumulator.height() - 1 - y ).asPackedRGB();
+
+					assertEquals( "Pixel (" + x + ", " + y + ")", expected, image.getRGB( x, y ) & 0xFFFFFF );
+				}
+			}
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+}
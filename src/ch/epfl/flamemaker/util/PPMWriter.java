@@ -1,11 +1,16 @@
 package ch.epfl.flamemaker.util;
 
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 import ch.epfl.flamemaker.color.Color;
 import ch.epfl.flamemaker.color.Palette;
 import ch.epfl.flamemaker.flame.FlameAccumulator;
+import ch.epfl.flamemaker.flame.RenderMetrics;
 
 /**
  * Dump a Flame accumulator into a PPM file.
@@ -17,16 +22,67 @@ public class PPMWriter
 {
 	
 	private String fileName;
+	private NetpbmFormat format;
 	private PrintStream stream; 
+	private FileOutputStream output;
+	private RenderMetrics metrics;
 
+	/**
+	 * Create a writer to a plain (P3) PPM file.
+	 * 
+	 * @param fileName
+	 * @throws FileNotFoundException
+	 */
 	public PPMWriter( String fileName ) throws FileNotFoundException
+	{
+		this( fileName, NetpbmFormat.PLAIN );
+	}
+	
+	/**
+	 * Create a writer to a PPM file of the given format.
+	 * 
+	 * @param fileName
+	 * @param format PLAIN for P3, with values between 0 and 100, RAW for P6, with values between 0 and 255.
+	 * @throws FileNotFoundException
+	 */
+	public PPMWriter( String fileName, NetpbmFormat format ) throws FileNotFoundException
 	{
 		this.fileName = fileName;
-		this.stream = new PrintStream( this.fileName );
+		this.format = format;
+		
+		if( format == NetpbmFormat.PLAIN )
+		{
+			this.stream = new PrintStream( this.fileName );
+		}
+		else
+		{
+			this.output = new FileOutputStream( this.fileName );
+		}
 	}
 	
-	public void printAccumulator( FlameAccumulator flame, Palette palette, Color bg )
+	/**
+	 * Add the time spent writing the image to the given metrics. A raw image is
+	 * colorized and written band after band, and both are timed separately, while
+	 * the pixels of a plain image are colorized as they are printed, which is only timed as a whole.
+	 *
+	 * @param metrics The metrics to add to, or null not to collect any.
+	 */
+	public void setMetrics( RenderMetrics metrics )
 	{
+		this.metrics = metrics;
+	}
+	
+	public void printAccumulator( FlameAccumulator flame, Palette palette, Color bg ) throws IOException
+	{
+		if( this.format == NetpbmFormat.RAW )
+		{
+			this.writeRaw( flame, palette, bg );
+			
+			return;
+		}
+		
+		long start = System.nanoTime();
+		
 		this.stream.println( "P3" );
 		this.stream.println( flame.width() + " " + flame.height() );
 		this.stream.println( "100" );
@@ -47,5 +103,63 @@ public class PPMWriter
 		}
 		
 		this.stream.close();
+		
+		if( this.metrics != null )
+		{
+			this.metrics.addPhase( RenderMetrics.WRITE, System.nanoTime() - start );
+		}
+	}
+	
+	/**
+	 * Write the accumulator as a raw (P6) PPM file, three bytes per pixel,
+	 * colorizing it one band of rows at a time.
+	 */
+	private void writeRaw( FlameAccumulator flame, Palette palette, Color bg ) throws IOException
+	{
+		final FileChannel channel = this.output.getChannel();
+		
+		try
+		{
+			BandExporter exporter = new BandExporter();
+			exporter.setMetrics( this.metrics );
+			exporter.export( flame, palette, bg, new BandExporter.Sink()
+			{
+				private int rowSize;
+				
+				@Override
+				public void start( int width, int height ) throws IOException
+				{
+					this.rowSize = 3 * width;
+					
+					byte[] header = ( "P6\n" + width + " " + height + "\n255\n" ).getBytes( "US-ASCII" );
+					this.write( header, header.length );
+				}
+				
+				@Override
+				public void band( byte[] rgb, int rows ) throws IOException
+				{
+					this.write( rgb, rows * this.rowSize );
+				}
+				
+				@Override
+				public void finish()
+				{
+				}
+				
+				private void write( byte[] bytes, int length ) throws IOException
+				{
+					ByteBuffer buffer = ByteBuffer.wrap( bytes, 0, length );
+					
+					while( buffer.hasRemaining() )
+					{
+						channel.write( buffer );
+					}
+				}
+			} );
+		}
+		finally
+		{
+			channel.close();
+		}
 	}
 }
@@ -0,0 +1,101 @@
+package ch.epfl.flamemaker.util;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.epfl.flamemaker.color.Color;
+import ch.epfl.flamemaker.color.InterpolatedPalette;
+import ch.epfl.flamemaker.color.Palette;
+import ch.epfl.flamemaker.flame.FlameAccumulator;
+import ch.epfl.flamemaker.geometry2d.Point;
+import ch.epfl.flamemaker.geometry2d.Rectangle;
+
+public class PPMWriterTest
+{
+	private static final Palette PALETTE = InterpolatedPalette.RGB_PALETTE;
+	private static final Color BACKGROUND = new Color( 0.1, 0.2, 0.3 );
+
+	@Test
+	public void testRaw() throws IOException
+	{
+		// Taller than a band of the exporter, and not a multiple of it.
+		FlameAccumulator accumulator = accumulator( 13, 37 );
+		File file = File.createTempFile( "flame", ".ppm" );
+
+		try
+		{
+			new PPMWriter( file.getPath(), NetpbmFormat.RAW ).printAccumulator( accumulator, PALETTE, BACKGROUND );
+
+			byte[] header = "P6\n13 37\n255\n".getBytes( "US-ASCII" );
+			byte[] bytes = read( file );
+
+			assertEquals( header.length + 3 * 13 * 37, bytes.length );
+			assertArrayEquals( header, Arrays.copyOf( bytes, header.length ) );
+
+			int i = header.length;
+
+			for( int y = accumulator.height() - 1; y >= 0; y-- )
+			{
+				for( int x = 0; x < accumulator.width(); x++ )
+				{
+					Color color = accumulator.color( PALETTE, BACKGROUND, x, y );
+
+					assertEquals( Color.sRGBEncode( color.red(), 255 ), bytes[ i++ ] & 0xFF );
+					assertEquals( Color.sRGBEncode( color.green(), 255 ), bytes[ i++ ] & 0xFF );
+					assertEquals( Color.sRGBEncode( color.blue(), 255 ), bytes[ i++ ] & 0xFF );
+				}
+			}
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	/**
+	 * @return An accumulator of the given size, with random points of random colors.
+	 */
+	static FlameAccumulator accumulator( int width, int height )
+	{
+		Random random = new Random( width * 31 + height );
+		FlameAccumulator.Builder builder = new FlameAccumulator.Builder( new Rectangle( new Point( width / 2.0, height / 2.0 ), width, height ), width, height );
+
+		for( int i = 0; i < 2 * width * height; i++ )
+		{
+			builder.hit( random.nextDouble() * width, random.nextDouble() * height, random.nextDouble() );
+		}
+
+		return builder.build();
+	}
+
+	static byte[] read( File file ) throws IOException
+	{
+		InputStream input = new FileInputStream( file );
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try
+		{
+			byte[] buffer = new byte[ 1 << 16 ];
+
+			for( int length = input.read( buffer ); length >= 0; length = input.read( buffer ) )
+			{
+				bytes.write( buffer, 0, length );
+			}
+		}
+		finally
+		{
+			input.close();
+		}
+
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,69 @@
+package ch.epfl.flamemaker.util;
+
+import java.util.Random;
+
+/**
+ * A family of random numbers streams, from which each worker
+ * of a computation gets its own stream.
+ *
+ * The streams must be serializable, so that a computation can be saved and resumed.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+public interface RandomStreams
+{
+
+	/**
+	 * Streams of {@link Random}: a single stream uses the seed itself, and several
+	 * streams are seeded by a stream of that seed.
+	 */
+	RandomStreams JAVA_UTIL = new RandomStreams()
+	{
+		@Override
+		public Random[] create( long seed, int count )
+		{
+			Random[] streams = new Random[ count ];
+			Random seeds = new Random( seed );
+
+			for( int i = 0; i < count; i++ )
+			{
+				streams[ i ] = new Random( count == 1 ? seed : seeds.nextLong() );
+			}
+
+			return streams;
+		}
+	};
+
+	/**
+	 * Streams of {@link Xoshiro256Random}, much faster than {@link Random},
+	 * split from a stream of the seed, so that they never overlap.
+	 */
+	RandomStreams XOSHIRO256 = new RandomStreams()
+	{
+		@Override
+		public Random[] create( long seed, int count )
+		{
+			Random[] streams = new Random[ count ];
+			Xoshiro256Random root = new Xoshiro256Random( seed );
+
+			for( int i = 0; i < count; i++ )
+			{
+				streams[ i ] = root.split();
+			}
+
+			return streams;
+		}
+	};
+
+	/**
+	 * Create the streams of a computation.
+	 *
+	 * @param seed The seed of the computation.
+	 * @param count The number of streams to create.
+	 * @return count streams, independent from each other,
+	 * 		   and the same from one call to another with the same seed.
+	 */
+	Random[] create( long seed, int count );
+
+}
@@ -0,0 +1,98 @@
+package ch.epfl.flamemaker.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Write an image to a file channel, row after row, through a reusable buffer
+ * holding as many rows as fit in 64 KB.
+ * 
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+final class RowChannel
+{
+	
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private final FileChannel channel;
+	private final int rowSize;
+	private final ByteBuffer buffer;
+	
+	/**
+	 * @param channel The channel to write to.
+	 * @param rowSize The number of bytes of a row.
+	 */
+	RowChannel( FileChannel channel, int rowSize )
+	{
+		this.channel = channel;
+		this.rowSize = rowSize;
+		this.buffer = ByteBuffer.allocateDirect( Math.max( rowSize, BUFFER_SIZE / rowSize * rowSize ) );
+	}
+	
+	/**
+	 * Write the given header, in ASCII.
+	 * 
+	 * @param header
+	 * @throws IOException
+	 */
+	void writeHeader( String header ) throws IOException
+	{
+		this.flush();
+		
+		ByteBuffer bytes = ByteBuffer.wrap( header.getBytes( Charset.forName( "US-ASCII" ) ) );
+		
+		while( bytes.hasRemaining() )
+		{
+			this.channel.write( bytes );
+		}
+	}
+	
+	/**
+	 * Make room for a new row, writing the previous ones if needed.
+	 * 
+	 * @return The buffer in which to put the bytes of the row.
+	 * @throws IOException
+	 */
+	ByteBuffer nextRow() throws IOException
+	{
+		if( this.buffer.remaining() < this.rowSize )
+		{
+			this.flush();
+		}
+		
+		return this.buffer;
+	}
+	
+	/**
+	 * Write the remaining rows and close the channel.
+	 * 
+	 * @throws IOException
+	 */
+	void close() throws IOException
+	{
+		try
+		{
+			this.flush();
+		}
+		finally
+		{
+			this.channel.close();
+		}
+	}
+	
+	private void flush() throws IOException
+	{
+		this.buffer.flip();
+		
+		while( this.buffer.hasRemaining() )
+		{
+			this.channel.write( this.buffer );
+		}
+		
+		this.buffer.clear();
+	}
+	
+}
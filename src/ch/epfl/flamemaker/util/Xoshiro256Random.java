@@ -0,0 +1,163 @@
+package ch.epfl.flamemaker.util;
+
+import java.util.Random;
+
+/**
+ * A fast random numbers stream, using the xoshiro256** generator of Blackman and Vigna,
+ * which can be split into streams that never overlap.
+ *
+ * Unlike {@link Random}, whose state is an atomic long updated on every draw,
+ * this stream is not thread-safe, and each thread must use its own.
+ * Its period is 2^256 - 1, and its state is seeded by SplitMix64.
+ *
+ * @author Romain Ruetschi #218357
+ * @author Arthur Passuello #229261
+ */
+public final class Xoshiro256Random extends Random
+{
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The polynomial jumping 2^128 draws ahead.
+	 */
+	private static final long[] JUMP = {
+		0x180ec6d33cfd0abaL, 0xd5a61266f0c9392cL, 0xa9582618e03fc9aaL, 0x39abdc4529b1661cL
+	};
+
+	private long s0;
+	private long s1;
+	private long s2;
+	private long s3;
+
+	/**
+	 * Create a stream with the given seed.
+	 *
+	 * @param seed The seed.
+	 */
+	public Xoshiro256Random( long seed )
+	{
+		// Random's constructor seeds the stream through setSeed().
+		super( seed );
+	}
+
+	private Xoshiro256Random( Xoshiro256Random that )
+	{
+		super( 0 );
+
+		this.s0 = that.s0;
+		this.s1 = that.s1;
+		this.s2 = that.s2;
+		this.s3 = that.s3;
+	}
+
+	/**
+	 * Reseed the stream, expanding the seed into the four words of the state with SplitMix64.
+	 */
+	@Override
+	public synchronized void setSeed( long seed )
+	{
+		super.setSeed( seed );
+
+		this.s0 = Xoshiro256Random.splitMix64( seed += 0x9e3779b97f4a7c15L );
+		this.s1 = Xoshiro256Random.splitMix64( seed += 0x9e3779b97f4a7c15L );
+		this.s2 = Xoshiro256Random.splitMix64( seed += 0x9e3779b97f4a7c15L );
+		this.s3 = Xoshiro256Random.splitMix64( seed += 0x9e3779b97f4a7c15L );
+	}
+
+	private static long splitMix64( long z )
+	{
+		z = ( z ^ ( z >>> 30 ) ) * 0xbf58476d1ce4e5b9L;
+		z = ( z ^ ( z >>> 27 ) ) * 0x94d049bb133111ebL;
+
+		return z ^ ( z >>> 31 );
+	}
+
+	/**
+	 * Split this stream in two: the returned stream starts where this one is,
+	 * and this one jumps 2^128 draws ahead, so that they never overlap.
+	 *
+	 * @return A new stream.
+	 */
+	public Xoshiro256Random split()
+	{
+		Xoshiro256Random that = new Xoshiro256Random( this );
+		this.jump();
+
+		return that;
+	}
+
+	/**
+	 * Advance the stream by 2^128 draws.
+	 */
+	private void jump()
+	{
+		long t0 = 0;
+		long t1 = 0;
+		long t2 = 0;
+		long t3 = 0;
+
+		for( long jump : JUMP )
+		{
+			for( int b = 0; b < 64; b++ )
+			{
+				if( ( jump & ( 1L << b ) ) != 0 )
+				{
+					t0 ^= this.s0;
+					t1 ^= this.s1;
+					t2 ^= this.s2;
+					t3 ^= this.s3;
+				}
+
+				this.nextLong();
+			}
+		}
+
+		this.s0 = t0;
+		this.s1 = t1;
+		this.s2 = t2;
+		this.s3 = t3;
+	}
+
+	@Override
+	public long nextLong()
+	{
+		long result = Long.rotateLeft( this.s1 * 5, 7 ) * 9;
+		long t = this.s1 << 17;
+
+		this.s2 ^= this.s0;
+		this.s3 ^= this.s1;
+		this.s1 ^= this.s2;
+		this.s0 ^= this.s3;
+		this.s2 ^= t;
+		this.s3 = Long.rotateLeft( this.s3, 45 );
+
+		return result;
+	}
+
+	/**
+	 * Every other method of {@link Random} draws its bits from here,
+	 * taking the high bits of {@link #nextLong()}, which are the best ones.
+	 */
+	@Override
+	protected int next( int bits )
+	{
+		return ( int )( this.nextLong() >>> ( 64 - bits ) );
+	}
+
+	@Override
+	public int nextInt()
+	{
+		return ( int )( this.nextLong() >>> 32 );
+	}
+
+	/**
+	 * Draw a double from 53 random bits at once, rather than from two calls to {@link #next( int )}.
+	 */
+	@Override
+	public double nextDouble()
+	{
+		return ( this.nextLong() >>> 11 ) * 0x1.0p-53;
+	}
+
+}
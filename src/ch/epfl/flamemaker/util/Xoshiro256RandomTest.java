@@ -0,0 +1,81 @@
+package ch.epfl.flamemaker.util;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class Xoshiro256RandomTest
+{
+	@Test
+	public void testSameSeedGivesSameStream()
+	{
+		Random a = new Xoshiro256Random( 2013 );
+		Random b = new Xoshiro256Random( 2013 );
+
+		for( int j = 0; j < 1000; j++ )
+		{
+			assertEquals( a.nextLong(), b.nextLong() );
+		}
+	}
+
+	@Test
+	public void testSplitStreamsDiffer()
+	{
+		Xoshiro256Random a = new Xoshiro256Random( 2013 );
+		Random b = a.split();
+		int same = 0;
+
+		for( int j = 0; j < 1000; j++ )
+		{
+			if( a.nextLong() == b.nextLong() )
+			{
+				same++;
+			}
+		}
+
+		assertEquals( 0, same );
+	}
+
+	@Test
+	public void testDoublesAreInUnitInterval()
+	{
+		Random random = new Xoshiro256Random( 2013 );
+		double sum = 0;
+
+		for( int j = 0; j < 100000; j++ )
+		{
+			double d = random.nextDouble();
+
+			assertTrue( d >= 0 && d < 1 );
+			sum += d;
+		}
+
+		assertEquals( 0.5, sum / 100000, 0.01 );
+	}
+
+	@Test
+	public void testSerializedStreamGoesOn() throws IOException, ClassNotFoundException
+	{
+		Random random = new Xoshiro256Random( 2013 );
+		random.nextLong();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream output = new ObjectOutputStream( bytes );
+		output.writeObject( random );
+		output.close();
+
+		Random restored = ( Random )new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+
+		for( int j = 0; j < 1000; j++ )
+		{
+			assertEquals( random.nextLong(), restored.nextLong() );
+		}
+	}
+}